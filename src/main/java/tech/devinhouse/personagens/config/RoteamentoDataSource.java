@@ -0,0 +1,40 @@
+package tech.devinhouse.personagens.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.EnumMap;
+import java.util.Map;
+
+// envia as transacoes somente leitura para a replica e o restante para o primario
+public class RoteamentoDataSource extends AbstractRoutingDataSource {
+
+    public enum Pool {
+        PRIMARIO,
+        REPLICA
+    }
+
+    private final Map<Pool, Counter> conexoes = new EnumMap<>(Pool.class);
+
+    public RoteamentoDataSource(DataSource primario, DataSource replica, MeterRegistry registry) {
+        setTargetDataSources(Map.of(Pool.PRIMARIO, primario, Pool.REPLICA, replica));
+        setDefaultTargetDataSource(primario);
+        for (Pool pool : Pool.values()) {
+            conexoes.put(pool, Counter.builder("personagens.datasource.conexoes")
+                    .description("Conexoes entregues por pool")
+                    .tag("pool", pool.name().toLowerCase())
+                    .register(registry));
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Pool pool = TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? Pool.REPLICA : Pool.PRIMARIO;
+        conexoes.get(pool).increment();
+        return pool;
+    }
+
+}
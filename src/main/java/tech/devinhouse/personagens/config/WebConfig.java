@@ -0,0 +1,28 @@
+package tech.devinhouse.personagens.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import tech.devinhouse.personagens.limite.LimiteInterceptor;
+import tech.devinhouse.personagens.limite.LimiteProperties;
+import tech.devinhouse.personagens.rastreamento.RastreamentoInterceptor;
+
+@Configuration
+@EnableConfigurationProperties(LimiteProperties.class)
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private LimiteInterceptor limiteInterceptor;
+
+    @Autowired
+    private RastreamentoInterceptor rastreamentoInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(limiteInterceptor).addPathPatterns("/api/**");
+        registry.addInterceptor(rastreamentoInterceptor).addPathPatterns("/api/**");
+    }
+
+}
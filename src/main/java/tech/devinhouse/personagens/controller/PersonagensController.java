@@ -1,17 +1,32 @@
 package tech.devinhouse.personagens.controller;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tech.devinhouse.personagens.dto.FaixaIdadeResponse;
+import tech.devinhouse.personagens.dto.PersonagemEventoResponse;
 import tech.devinhouse.personagens.dto.PersonagemIdadeResponse;
 import tech.devinhouse.personagens.dto.PersonagemRequest;
 import tech.devinhouse.personagens.dto.PersonagemResponse;
 import tech.devinhouse.personagens.dto.PersonagemUpdateRequest;
+import tech.devinhouse.personagens.exception.FaixaIdadeInvalidaException;
+import tech.devinhouse.personagens.exception.ValidacaoLoteException;
+import tech.devinhouse.personagens.limite.Limitado;
 import tech.devinhouse.personagens.model.Personagem;
+import tech.devinhouse.personagens.service.IndiceDataNascimento;
+import tech.devinhouse.personagens.service.PersonagemBroadcaster;
+import tech.devinhouse.personagens.service.PersonagemEventoService;
 import tech.devinhouse.personagens.service.PersonagemService;
+import tech.devinhouse.personagens.validacao.ErrosValidacao;
+import tech.devinhouse.personagens.validacao.ValidadorPersonagem;
 
 import java.net.URI;
 import java.time.LocalDate;
@@ -19,18 +34,34 @@ import java.time.Month;
 import java.util.List;
 
 @RestController
+@Validated  // validacao dos @RequestParam
 @RequestMapping("/api/personagens")
 @Slf4j   // instancia um logger para uso na classe
 @CrossOrigin
 public class PersonagensController {
 
+    private static final int IDADE_MAXIMA = 100_000;  // acima disso a data de nascimento sai da faixa do LocalDate
+
     @Autowired
     private ModelMapper modelMapper;
 
     @Autowired
     private PersonagemService service;
 
+    @Autowired
+    private PersonagemEventoService eventoService;
+
+    @Autowired
+    private PersonagemBroadcaster broadcaster;
+
+    @Autowired
+    private IndiceDataNascimento indiceDataNascimento;
+
+    @Autowired
+    private ValidadorPersonagem validador;
+
     @PostMapping
+    @Limitado("insercao")
     public ResponseEntity inserir(@RequestBody @Valid PersonagemRequest request) {
         log.info("Request de insercao: {}", request);
         Personagem personagem = modelMapper.map(request, Personagem.class);
@@ -39,9 +70,28 @@ public class PersonagensController {
         return ResponseEntity.created(URI.create(resp.getId().toString())).body(resp);  // 201
     }
 
+    @PostMapping("lote")
+    @Limitado("insercao")
+    public ResponseEntity<List<PersonagemResponse>> inserir(@RequestBody List<PersonagemRequest> requests) {
+        log.info("Request de insercao em lote com {} registros", requests.size());
+        ErrosValidacao erros = validador.validar(requests);  // validacao do lote inteiro em uma passada, sem @Valid por objeto
+        if (!erros.isEmpty())
+            throw new ValidacaoLoteException(erros);
+        List<Personagem> personagens = requests.stream().map(r -> modelMapper.map(r, Personagem.class)).toList();
+        List<PersonagemResponse> resp = service.inserir(personagens).stream()
+                .map(p -> modelMapper.map(p, PersonagemResponse.class)).toList();
+        return ResponseEntity.created(URI.create("")).body(resp);
+    }
+
     @GetMapping
-    public ResponseEntity<List<PersonagemResponse>> consultar() {
-        List<Personagem> personagens = service.consultar();
+    @Limitado("listagem")
+    public ResponseEntity<List<PersonagemResponse>> consultar(@RequestParam(name = "idadeMin", required = false) @Min(0) @Max(IDADE_MAXIMA) Integer idadeMin,
+                                                              @RequestParam(name = "idadeMax", required = false) @Min(0) @Max(IDADE_MAXIMA) Integer idadeMax) {
+        if (idadeMin != null && idadeMax != null && idadeMin > idadeMax)
+            throw new FaixaIdadeInvalidaException();
+        List<Personagem> personagens = idadeMin == null && idadeMax == null
+                ? service.consultar()
+                : service.consultarPorIdade(idadeMin, idadeMax);
         List<PersonagemResponse> resp = personagens.stream()
                 .map(p -> modelMapper.map(p, PersonagemResponse.class)).toList();
         log.info("Consulta com {} registros", resp.size());
@@ -86,7 +136,39 @@ public class PersonagensController {
         return ResponseEntity.ok(resp);
     }
 
+    @GetMapping("idades/histograma")
+    public ResponseEntity<List<FaixaIdadeResponse>> consultarHistogramaIdades(@RequestParam(name = "faixa", defaultValue = "10") @Min(1) @Max(IDADE_MAXIMA) Integer faixa) {
+        return ResponseEntity.ok(indiceDataNascimento.histograma(faixa, LocalDate.now()));
+    }
+
+    @GetMapping("eventos")
+    public ResponseEntity<List<PersonagemEventoResponse>> consultarEventos(@RequestParam(name = "desde", defaultValue = "0") Long desde) {
+        List<PersonagemEventoResponse> resp = eventoService.consultarDesde(desde).stream()
+                .map(e -> modelMapper.map(e, PersonagemEventoResponse.class)).toList();
+        return ResponseEntity.ok(resp);
+    }
+
+    // feed continuo do outbox: os eventos posteriores a "desde" e em seguida os novos, pelo mesmo broadcaster do stream
+    @GetMapping(path = "eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter acompanharEventos(@RequestParam(name = "desde", defaultValue = "0") Long desde,
+                                        @RequestHeader(name = "Last-Event-ID", required = false) Long ultimoEvento) {
+        return broadcaster.retomar(ultimoEvento != null ? ultimoEvento : desde, eventoService::consultarDesdeNoPrimario);
+    }
+
+    // sem "desde" comeca por um snapshot da lista; com ele (ou com o Last-Event-ID da reconexao) retoma pelo outbox
+    @GetMapping(path = "stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter acompanhar(@RequestParam(name = "desde", required = false) Long desde,
+                                 @RequestHeader(name = "Last-Event-ID", required = false) Long ultimoEvento) {
+        log.info("Nova assinatura do stream de personagens");
+        Long retomarDe = ultimoEvento != null ? ultimoEvento : desde;
+        if (retomarDe != null)
+            return broadcaster.retomar(retomarDe, eventoService::consultarDesdeNoPrimario);
+        return broadcaster.assinar(() -> service.consultar().stream()
+                .map(p -> modelMapper.map(p, PersonagemResponse.class)).toList());
+    }
+
     @PostMapping("dados")
+    @Limitado("dados")
     public ResponseEntity<List<PersonagemResponse>> incluirDefault() {
         log.info("Executado serviço de carga inicial de registros");
         var lista = List.of(
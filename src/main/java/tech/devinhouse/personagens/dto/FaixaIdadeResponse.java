@@ -0,0 +1,18 @@
+package tech.devinhouse.personagens.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FaixaIdadeResponse {
+
+    private Integer idadeMin;
+
+    private Integer idadeMax;
+
+    private Integer quantidade;
+
+}
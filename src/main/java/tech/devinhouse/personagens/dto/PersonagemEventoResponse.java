@@ -0,0 +1,31 @@
+package tech.devinhouse.personagens.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import tech.devinhouse.personagens.model.TipoEvento;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+public class PersonagemEventoResponse {
+
+    private Long id;
+
+    private TipoEvento tipo;
+
+    private Long personagemId;
+
+    private Long cpf;
+
+    private String nome;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy")
+    private LocalDate dataNascimento;
+
+    private String serie;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy HH:mm:ss")
+    private LocalDateTime dataHora;
+
+}
@@ -1,6 +1,8 @@
 package tech.devinhouse.personagens.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.PastOrPresent;
@@ -17,6 +19,8 @@ import java.time.LocalDate;
 public class PersonagemRequest {
 
     @NotNull(message = "CPF deve ser informado")
+    @Min(value = 0, message = "CPF inválido")
+    @Max(value = 99_999_999_999L, message = "CPF inválido")
     private Long cpf;
 
     @NotEmpty(message = "Nome deve ser informado")
@@ -0,0 +1,4 @@
+package tech.devinhouse.personagens.exception;
+
+public class FaixaIdadeInvalidaException extends RuntimeException {
+}
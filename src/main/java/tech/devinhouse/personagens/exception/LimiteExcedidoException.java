@@ -0,0 +1,4 @@
+package tech.devinhouse.personagens.exception;
+
+public class LimiteExcedidoException extends RuntimeException {
+}
@@ -3,6 +3,7 @@ package tech.devinhouse.personagens.exception;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Path;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
@@ -23,8 +24,9 @@ import java.util.Map;
 @Slf4j
 public class RestExceptionHandler extends ResponseEntityExceptionHandler {
 
-    @ExceptionHandler(RegistroExistenteException.class)
-    public ResponseEntity<Object> handleRegistroExistenteException(RegistroExistenteException e) {
+    // DuplicateKeyException: cpf reservado por outra requisicao entre a verificacao e a gravacao (repositorio sharding)
+    @ExceptionHandler({RegistroExistenteException.class, DuplicateKeyException.class})
+    public ResponseEntity<Object> handleRegistroExistenteException(RuntimeException e) {
         Map<String, String> retorno = new HashMap<>();
         retorno.put("erro", "Registro já cadastrado!");
         return ResponseEntity.status(HttpStatus.CONFLICT).body(retorno);
@@ -37,6 +39,27 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(retorno);
     }
 
+    @ExceptionHandler(LimiteExcedidoException.class)
+    public ResponseEntity<Object> handleLimiteExcedidoException(LimiteExcedidoException e) {
+        Map<String, String> retorno = new HashMap<>();
+        retorno.put("erro", "Limite de requisições excedido!");
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").body(retorno);
+    }
+
+    @ExceptionHandler(SobrecargaException.class)
+    public ResponseEntity<Object> handleSobrecargaException(SobrecargaException e) {
+        Map<String, String> retorno = new HashMap<>();
+        retorno.put("erro", "Servidor sobrecarregado, tente novamente!");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(retorno);
+    }
+
+    @ExceptionHandler(FaixaIdadeInvalidaException.class)
+    public ResponseEntity<Object> handleFaixaIdadeInvalidaException(FaixaIdadeInvalidaException e) {
+        Map<String, String> retorno = new HashMap<>();
+        retorno.put("erro", "Idade mínima maior que a idade máxima!");
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(retorno);
+    }
+
     @ExceptionHandler(ConstraintViolationException.class)
     public ResponseEntity<Object> handleConstraintViolation(ConstraintViolationException ex) {
         Map<String, String> fieldErrors = new HashMap<>();
@@ -53,6 +76,12 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(fieldErrors);
     }
 
+    @ExceptionHandler(ValidacaoLoteException.class)
+    public ResponseEntity<Object> handleValidacaoLoteException(ValidacaoLoteException e) {
+        log.error("Lote com {} erros de validacao", e.getErros().getQuantidade());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getErros().porLinha());
+    }
+
     @Override
     protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException ex, HttpHeaders headers, HttpStatusCode status, WebRequest request) {
         Map<String, String> fieldErrors = new HashMap<>();
@@ -0,0 +1,17 @@
+package tech.devinhouse.personagens.exception;
+
+import tech.devinhouse.personagens.validacao.ErrosValidacao;
+
+public class ValidacaoLoteException extends RuntimeException {
+
+    private final ErrosValidacao erros;
+
+    public ValidacaoLoteException(ErrosValidacao erros) {
+        this.erros = erros;
+    }
+
+    public ErrosValidacao getErros() {
+        return erros;
+    }
+
+}
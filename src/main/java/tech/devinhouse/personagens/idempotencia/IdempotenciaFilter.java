@@ -0,0 +1,190 @@
+package tech.devinhouse.personagens.idempotencia;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.UrlPathHelper;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import tech.devinhouse.personagens.limite.IdentificacaoCliente;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+
+// reenvia a resposta 201 original para retentativas de POST /api/personagens com o mesmo Idempotency-Key;
+// a chave eh de cada cliente e fica presa ao corpo da primeira requisicao, e o reuso com outro corpo da 422
+@Component
+@Slf4j
+public class IdempotenciaFilter extends OncePerRequestFilter {
+
+    public static final String CABECALHO = "Idempotency-Key";
+
+    private static final int TAMANHO_MAXIMO_CHAVE = 255;
+
+    private static final PathPattern ROTA = PathPatternParser.defaultInstance.parse("/api/personagens");
+
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    @Autowired
+    private IdempotenciaStore store;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || request.getHeader(CABECALHO) == null
+                || !ROTA.matches(PathContainer.parsePath(urlPathHelper.getPathWithinApplication(request)));
+    }
+
+    // hash do corpo; a mesma chave com outra impressao eh outra requisicao
+    public static String impressao(byte[] corpo) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(corpo));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String chave = request.getHeader(CABECALHO);
+        if (chave.isBlank() || chave.length() > TAMANHO_MAXIMO_CHAVE) {
+            responderErro(response, HttpStatus.BAD_REQUEST, "Chave de idempotência inválida!");
+            return;
+        }
+        String cliente = IdentificacaoCliente.de(request);
+        byte[] corpo = request.getInputStream().readAllBytes();
+        String impressao = impressao(corpo);
+        Optional<RespostaArmazenada> armazenada = store.consultar(cliente, chave);
+        if (armazenada.isPresent()) {
+            if (!impressao.equals(armazenada.get().impressao())) {
+                responderErro(response, HttpStatus.UNPROCESSABLE_ENTITY, "Chave de idempotência já usada em outra requisição!");
+                return;
+            }
+            log.debug("Reenviando resposta armazenada para a chave {}", chave);
+            reenviar(response, armazenada.get());
+            return;
+        }
+        switch (store.reservar(cliente, chave, impressao)) {
+            case EM_PROCESSAMENTO -> {
+                responderErro(response, HttpStatus.CONFLICT, "Requisição com a mesma chave de idempotência em processamento!");
+                return;
+            }
+            case OUTRA_REQUISICAO -> {
+                responderErro(response, HttpStatus.UNPROCESSABLE_ENTITY, "Chave de idempotência já usada em outra requisição!");
+                return;
+            }
+            case RESERVADA -> {
+            }
+        }
+        var wrapper = new ContentCachingResponseWrapper(response);
+        boolean concluida = false;
+        try {
+            chain.doFilter(new RequisicaoComCorpo(request, corpo), wrapper);
+            if (wrapper.getStatus() == HttpStatus.CREATED.value()) {
+                store.concluir(cliente, chave, new RespostaArmazenada(wrapper.getStatus(), wrapper.getHeader(HttpHeaders.LOCATION),
+                        wrapper.getContentType(), wrapper.getContentAsByteArray(), impressao));
+                concluida = true;
+            }
+        } finally {
+            if (!concluida)
+                store.liberar(cliente, chave);
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private void reenviar(HttpServletResponse response, RespostaArmazenada resposta) throws IOException {
+        response.setStatus(resposta.status());
+        if (resposta.location() != null)
+            response.setHeader(HttpHeaders.LOCATION, resposta.location());
+        if (resposta.tipoConteudo() != null)
+            response.setContentType(resposta.tipoConteudo());
+        response.setContentLength(resposta.corpo().length);
+        response.getOutputStream().write(resposta.corpo());
+    }
+
+    private void responderErro(HttpServletResponse response, HttpStatus status, String mensagem) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getOutputStream(), Map.of("erro", mensagem));
+    }
+
+    // o corpo ja foi lido para calcular a impressao; o controller le a copia guardada
+    private static class RequisicaoComCorpo extends HttpServletRequestWrapper {
+
+        private final byte[] corpo;
+
+        private RequisicaoComCorpo(HttpServletRequest request, byte[] corpo) {
+            super(request);
+            this.corpo = corpo;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            var entrada = new ByteArrayInputStream(corpo);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return entrada.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        if (!isFinished())
+                            listener.onDataAvailable();
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return entrada.read();
+                }
+
+                @Override
+                public int read(byte[] b, int inicio, int tamanho) {
+                    return entrada.read(b, inicio, tamanho);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws UnsupportedEncodingException {
+            String charset = getCharacterEncoding() != null ? getCharacterEncoding() : StandardCharsets.UTF_8.name();
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+
+    }
+
+}
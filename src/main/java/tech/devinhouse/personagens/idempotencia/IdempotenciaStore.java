@@ -0,0 +1,183 @@
+package tech.devinhouse.personagens.idempotencia;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tech.devinhouse.personagens.model.RespostaIdempotente;
+import tech.devinhouse.personagens.model.RespostaIdempotenteId;
+import tech.devinhouse.personagens.repository.RespostaIdempotenteRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// mapa dividido em segmentos, cada um com capacidade limitada e expiracao por TTL (ordem de insercao = ordem de expiracao);
+// as chaves sao por cliente: a mesma Idempotency-Key de clientes diferentes sao requisicoes diferentes
+@Component
+@Slf4j
+public class IdempotenciaStore {
+
+    @Autowired
+    private RespostaIdempotenteRepository repo;
+
+    @Value("${personagens.idempotencia.persistir:false}")
+    private boolean persistir;
+
+    private final Segmento[] segmentos;
+
+    private final long ttlNanos;
+
+    private final Duration ttl;
+
+    public IdempotenciaStore(@Value("${personagens.idempotencia.capacidade:10000}") int capacidade,
+                             @Value("${personagens.idempotencia.segmentos:16}") int quantidadeSegmentos,
+                             @Value("${personagens.idempotencia.ttl:PT24H}") Duration ttl) {
+        this.segmentos = new Segmento[quantidadeSegmentos];
+        int capacidadeSegmento = Math.max(1, capacidade / quantidadeSegmentos);
+        for (int i = 0; i < quantidadeSegmentos; i++)
+            segmentos[i] = new Segmento(capacidadeSegmento);
+        this.ttl = ttl;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    public Optional<RespostaArmazenada> consultar(String cliente, String valor) {
+        Chave chave = new Chave(cliente, valor);
+        Segmento segmento = segmento(chave);
+        long agora = System.nanoTime();
+        synchronized (segmento) {
+            Entrada entrada = segmento.get(chave);
+            if (entrada != null && entrada.expiraEm - agora > 0)
+                return Optional.ofNullable(entrada.resposta);
+        }
+        return persistir ? consultarPersistida(chave) : Optional.empty();
+    }
+
+    // a chave so pode ser reservada se nao estiver em processamento nem concluida
+    public Reserva reservar(String cliente, String valor, String impressao) {
+        Chave chave = new Chave(cliente, valor);
+        Segmento segmento = segmento(chave);
+        long agora = System.nanoTime();
+        synchronized (segmento) {
+            segmento.expirar(agora);
+            Entrada existente = segmento.get(chave);
+            if (existente != null && existente.expiraEm - agora > 0)
+                return existente.impressao.equals(impressao) ? Reserva.EM_PROCESSAMENTO : Reserva.OUTRA_REQUISICAO;
+            segmento.put(chave, new Entrada(null, impressao, agora + ttlNanos));
+            return Reserva.RESERVADA;
+        }
+    }
+
+    // remove antes de inserir para a entrada ir para o fim, mantendo a ordem de expiracao da varredura
+    public void concluir(String cliente, String valor, RespostaArmazenada resposta) {
+        Chave chave = new Chave(cliente, valor);
+        Segmento segmento = segmento(chave);
+        synchronized (segmento) {
+            segmento.remove(chave);
+            segmento.put(chave, new Entrada(resposta, resposta.impressao(), System.nanoTime() + ttlNanos));
+        }
+        if (persistir) {
+            repo.save(new RespostaIdempotente(cliente, valor, resposta.status(), resposta.location(),
+                    resposta.tipoConteudo(), resposta.corpo(), resposta.impressao(), LocalDateTime.now()));
+        }
+    }
+
+    // libera a chave quando a requisicao original nao gerou resposta armazenavel, permitindo nova tentativa
+    public void liberar(String cliente, String valor) {
+        Chave chave = new Chave(cliente, valor);
+        Segmento segmento = segmento(chave);
+        synchronized (segmento) {
+            Entrada entrada = segmento.get(chave);
+            if (entrada != null && entrada.resposta == null)
+                segmento.remove(chave);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${personagens.idempotencia.limpeza-intervalo-ms:600000}")
+    public void limpar() {
+        long agora = System.nanoTime();
+        for (Segmento segmento : segmentos) {
+            synchronized (segmento) {
+                segmento.expirar(agora);
+            }
+        }
+        if (persistir) {
+            int excluidas = repo.excluirCriadasAntesDe(LocalDateTime.now().minus(ttl));
+            log.debug("Removidas {} respostas idempotentes expiradas", excluidas);
+        }
+    }
+
+    // em cache so pelo que resta do TTL desde a criacao; por expirar antes das entradas mais novas ela pode ficar
+    // para tras na varredura, mas toda leitura confere o expiraEm da propria entrada
+    private Optional<RespostaArmazenada> consultarPersistida(Chave chave) {
+        LocalDateTime agora = LocalDateTime.now();
+        Optional<RespostaIdempotente> persistida = repo.findById(new RespostaIdempotenteId(chave.cliente(), chave.valor()))
+                .filter(r -> r.getCriadoEm().isAfter(agora.minus(ttl)));
+        persistida.ifPresent(r -> {
+            long restante = ttlNanos - Duration.between(r.getCriadoEm(), agora).toNanos();
+            Segmento segmento = segmento(chave);
+            synchronized (segmento) {
+                segmento.putIfAbsent(chave, new Entrada(resposta(r), r.getImpressao(), System.nanoTime() + restante));
+            }
+        });
+        return persistida.map(IdempotenciaStore::resposta);
+    }
+
+    private static RespostaArmazenada resposta(RespostaIdempotente r) {
+        return new RespostaArmazenada(r.getStatus(), r.getLocation(), r.getTipoConteudo(), r.getCorpo(), r.getImpressao());
+    }
+
+    private Segmento segmento(Chave chave) {
+        int h = chave.hashCode();
+        return segmentos[Math.floorMod(h ^ (h >>> 16), segmentos.length)];
+    }
+
+    public enum Reserva {
+        RESERVADA,
+        EM_PROCESSAMENTO,
+        OUTRA_REQUISICAO  // a chave ja foi usada pelo cliente com outro corpo
+    }
+
+    private record Chave(String cliente, String valor) {
+    }
+
+    private record Entrada(RespostaArmazenada resposta, String impressao, long expiraEm) {
+    }
+
+    private static class Segmento extends LinkedHashMap<Chave, Entrada> {
+
+        private final int capacidade;
+
+        private Segmento(int capacidade) {
+            this.capacidade = capacidade;
+        }
+
+        private void expirar(long agora) {
+            Iterator<Entrada> it = values().iterator();
+            while (it.hasNext() && it.next().expiraEm - agora <= 0)
+                it.remove();
+        }
+
+        // descarta a resposta concluida mais antiga; reservas em andamento nunca saem, senao a mesma chave
+        // poderia ser processada duas vezes (o segmento pode passar da capacidade enquanto so houver reservas)
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Chave, Entrada> eldest) {
+            if (size() <= capacidade)
+                return false;
+            Iterator<Entrada> it = values().iterator();
+            while (it.hasNext()) {
+                if (it.next().resposta != null) {
+                    it.remove();
+                    break;
+                }
+            }
+            return false;
+        }
+
+    }
+
+}
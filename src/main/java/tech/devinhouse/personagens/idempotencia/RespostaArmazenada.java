@@ -0,0 +1,5 @@
+package tech.devinhouse.personagens.idempotencia;
+
+// resposta original guardada para ser reenviada byte a byte nas retentativas; a impressao identifica a requisicao
+public record RespostaArmazenada(int status, String location, String tipoConteudo, byte[] corpo, String impressao) {
+}
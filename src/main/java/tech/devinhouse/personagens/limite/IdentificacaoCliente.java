@@ -0,0 +1,19 @@
+package tech.devinhouse.personagens.limite;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.security.Principal;
+
+// quem faz a requisicao: o usuario autenticado ou, sem autenticacao, o endereco remoto; nunca um cabecalho
+// informado pelo proprio cliente, que bastaria trocar a cada requisicao para escapar do limite
+public final class IdentificacaoCliente {
+
+    private IdentificacaoCliente() {
+    }
+
+    public static String de(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        return principal != null ? "usuario:" + principal.getName() : "ip:" + request.getRemoteAddr();
+    }
+
+}
@@ -0,0 +1,15 @@
+package tech.devinhouse.personagens.limite;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// marca o endpoint com o nome da rota configurada em personagens.limite.rotas.<nome>
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Limitado {
+
+    String value();
+
+}
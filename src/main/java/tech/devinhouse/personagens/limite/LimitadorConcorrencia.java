@@ -0,0 +1,82 @@
+package tech.devinhouse.personagens.limite;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// limite de concorrencia adaptativo (AIMD): cresce enquanto a latencia fica perto da base e cai quando ela dispara
+public class LimitadorConcorrencia {
+
+    private static final double REDUCAO = 0.9;
+
+    private static final long NENHUMA = Long.MIN_VALUE;
+
+    private final AtomicInteger emUso = new AtomicInteger();
+
+    private final AtomicLong limite;  // bits do double, atualizado por CAS
+
+    private final AtomicLong latenciaBase = new AtomicLong(Long.MAX_VALUE);
+
+    private final AtomicLong ultimaReducao = new AtomicLong(NENHUMA);  // nanoTime da ultima reducao
+
+    private final int minimo;
+
+    private final int maximo;
+
+    private final double tolerancia;
+
+    public LimitadorConcorrencia(int inicial, int minimo, int maximo, double tolerancia) {
+        this.limite = new AtomicLong(Double.doubleToLongBits(inicial));
+        this.minimo = minimo;
+        this.maximo = maximo;
+        this.tolerancia = tolerancia;
+    }
+
+    public boolean tentarAdquirir() {
+        int maximoAtual = getLimite();
+        while (true) {
+            int atual = emUso.get();
+            if (atual >= maximoAtual)
+                return false;
+            if (emUso.compareAndSet(atual, atual + 1))
+                return true;
+        }
+    }
+
+    public void liberar(long inicioNanos, long fimNanos, boolean sucesso) {
+        int emUsoAntes = emUso.getAndDecrement();
+        long latenciaNanos = fimNanos - inicioNanos;
+        long base = atualizarLatenciaBase(latenciaNanos);
+        if (!sucesso || latenciaNanos > base * tolerancia) {
+            if (podeReduzir(inicioNanos, fimNanos))
+                limite.getAndUpdate(bits -> Double.doubleToLongBits(Math.max(minimo, Double.longBitsToDouble(bits) * REDUCAO)));
+        } else if (emUsoAntes * 2 >= getLimite()) {  // so cresce quando o limite esta de fato sendo usado
+            limite.getAndUpdate(bits -> {
+                double atual = Double.longBitsToDouble(bits);
+                return Double.doubleToLongBits(Math.min(maximo, atual + 1.0 / atual));
+            });
+        }
+    }
+
+    public int getLimite() {
+        return (int) Double.longBitsToDouble(limite.get());
+    }
+
+    public int getEmUso() {
+        return emUso.get();
+    }
+
+    // no maximo uma reducao por RTT: quem ja estava em voo quando o limite caiu sofreu o mesmo congestionamento
+    // e nao deve reduzir de novo, senao uma rajada de respostas lentas derruba o limite direto para o minimo
+    private boolean podeReduzir(long inicioNanos, long fimNanos) {
+        long ultima = ultimaReducao.get();
+        if (ultima != NENHUMA && inicioNanos - ultima < 0)
+            return false;
+        return ultimaReducao.compareAndSet(ultima, fimNanos);
+    }
+
+    // minimo observado, com leve deriva para cima para acompanhar mudancas de carga
+    private long atualizarLatenciaBase(long amostra) {
+        return latenciaBase.updateAndGet(base -> base == Long.MAX_VALUE || amostra < base ? amostra : base + (amostra - base) / 1000);
+    }
+
+}
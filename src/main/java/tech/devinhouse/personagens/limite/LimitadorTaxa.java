@@ -0,0 +1,78 @@
+package tech.devinhouse.personagens.limite;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// token bucket sem locks, um balde por cliente: cada balde guarda em um long o instante da ultima reposicao (ms)
+// e as fichas em milesimos
+public class LimitadorTaxa {
+
+    private static final int BITS_FICHAS = 24;
+
+    private static final long MASCARA_FICHAS = (1L << BITS_FICHAS) - 1;
+
+    private static final long FICHA = 1000;
+
+    private static final long INTERVALO_LIMPEZA_MS = 1000;
+
+    static final int CAPACIDADE_MAXIMA = (int) (MASCARA_FICHAS / FICHA);
+
+    private final ConcurrentHashMap<String, AtomicLong> baldes = new ConcurrentHashMap<>();
+
+    private final int maximoClientes;
+
+    private final long capacidade;
+
+    private final double reposicaoPorMs;  // em milesimos de ficha, numericamente igual a fichas por segundo
+
+    private final long inicio = System.nanoTime();
+
+    private final AtomicLong ultimaLimpeza = new AtomicLong(-INTERVALO_LIMPEZA_MS);
+
+    public LimitadorTaxa(int maximoClientes, int capacidade, double reposicaoPorSegundo) {
+        if (capacidade < 1 || capacidade > CAPACIDADE_MAXIMA)
+            throw new IllegalArgumentException("Capacidade deve estar entre 1 e " + CAPACIDADE_MAXIMA);
+        this.maximoClientes = maximoClientes;
+        this.capacidade = capacidade * FICHA;
+        this.reposicaoPorMs = reposicaoPorSegundo;
+    }
+
+    public boolean tentarAdquirir(String cliente) {
+        long agora = (System.nanoTime() - inicio) / 1_000_000;
+        AtomicLong balde = baldes.get(cliente);
+        if (balde == null) {
+            if (baldes.size() >= maximoClientes)
+                descartarCheios(agora);
+            balde = baldes.computeIfAbsent(cliente, c -> new AtomicLong(capacidade));  // instante zero, balde cheio
+        }
+        while (true) {
+            long estado = balde.get();
+            long instante = estado >>> BITS_FICHAS;
+            long disponiveis = disponiveis(estado, agora);
+            if (disponiveis < FICHA)
+                return false;
+            long novo = (Math.max(agora, instante) << BITS_FICHAS) | (disponiveis - FICHA);
+            if (balde.compareAndSet(estado, novo))
+                return true;
+        }
+    }
+
+    int getClientes() {
+        return baldes.size();
+    }
+
+    private long disponiveis(long estado, long agora) {
+        long decorrido = Math.max(0, agora - (estado >>> BITS_FICHAS));
+        return Math.min(capacidade, (estado & MASCARA_FICHAS) + (long) (decorrido * reposicaoPorMs));
+    }
+
+    // um balde que ja encheu de novo equivale a um balde novo, entao descarta-lo nao muda o limite de ninguem;
+    // no maximo uma varredura por intervalo para um pico de clientes ativos nao virar O(n) por requisicao
+    private void descartarCheios(long agora) {
+        long ultima = ultimaLimpeza.get();
+        if (agora - ultima < INTERVALO_LIMPEZA_MS || !ultimaLimpeza.compareAndSet(ultima, agora))
+            return;
+        baldes.values().removeIf(balde -> disponiveis(balde.get(), agora) >= capacidade);
+    }
+
+}
@@ -0,0 +1,69 @@
+package tech.devinhouse.personagens.limite;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import tech.devinhouse.personagens.exception.LimiteExcedidoException;
+import tech.devinhouse.personagens.exception.SobrecargaException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@Slf4j
+public class LimiteInterceptor implements HandlerInterceptor {
+
+    private static final String ATRIBUTO_ROTA = LimiteInterceptor.class.getName() + ".rota";
+
+    private static final String ATRIBUTO_INICIO = LimiteInterceptor.class.getName() + ".inicio";
+
+    @Autowired
+    private LimiteProperties properties;
+
+    private final Map<String, Rota> rotas = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!properties.isHabilitado() || !(handler instanceof HandlerMethod metodo))
+            return true;
+        Limitado limitado = metodo.getMethodAnnotation(Limitado.class);
+        if (limitado == null || !properties.getRotas().containsKey(limitado.value()))
+            return true;
+        Rota rota = rotas.computeIfAbsent(limitado.value(), nome -> criarRota(properties.getRotas().get(nome)));
+        String cliente = IdentificacaoCliente.de(request);
+        if (!rota.taxa.tentarAdquirir(cliente)) {
+            log.warn("Limite de taxa excedido na rota {} pelo cliente {}", limitado.value(), cliente);
+            throw new LimiteExcedidoException();
+        }
+        if (!rota.concorrencia.tentarAdquirir()) {
+            log.warn("Rota {} sobrecarregada, limite de concorrencia {}", limitado.value(), rota.concorrencia.getLimite());
+            throw new SobrecargaException();
+        }
+        request.setAttribute(ATRIBUTO_ROTA, rota);
+        request.setAttribute(ATRIBUTO_INICIO, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(ATRIBUTO_ROTA) instanceof Rota rota) {
+            long inicio = (Long) request.getAttribute(ATRIBUTO_INICIO);
+            rota.concorrencia.liberar(inicio, System.nanoTime(), ex == null && response.getStatus() < 500);
+        }
+    }
+
+    private Rota criarRota(LimiteProperties.Rota config) {
+        return new Rota(
+                new LimitadorTaxa(properties.getMaximoClientes(), config.getCapacidade(), config.getReposicaoPorSegundo()),
+                new LimitadorConcorrencia(config.getConcorrenciaInicial(), config.getConcorrenciaMinima(),
+                        config.getConcorrenciaMaxima(), config.getTolerancia()));
+    }
+
+    private record Rota(LimitadorTaxa taxa, LimitadorConcorrencia concorrencia) {
+    }
+
+}
@@ -0,0 +1,36 @@
+package tech.devinhouse.personagens.limite;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "personagens.limite")
+public class LimiteProperties {
+
+    private boolean habilitado = true;
+
+    private int maximoClientes = 100_000;  // baldes por rota a partir do qual os ja cheios sao descartados
+
+    private Map<String, Rota> rotas = new HashMap<>();
+
+    @Data
+    public static class Rota {
+
+        private int capacidade = 100;
+
+        private double reposicaoPorSegundo = 50;
+
+        private int concorrenciaInicial = 20;
+
+        private int concorrenciaMinima = 1;
+
+        private int concorrenciaMaxima = 200;
+
+        private double tolerancia = 2.0;  // latencia acima de tolerancia x latencia base reduz o limite
+
+    }
+
+}
@@ -0,0 +1,20 @@
+package tech.devinhouse.personagens.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class CursorSink {
+
+    @Id
+    private String nome;
+
+    private Long ultimoEvento;  // id do ultimo evento entregue ao sink
+
+}
@@ -0,0 +1,44 @@
+package tech.devinhouse.personagens.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(indexes = @Index(columnList = "publicado"))
+public class PersonagemEvento {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;  // sequencial usado pelos consumidores para leitura incremental
+
+    @Enumerated(EnumType.STRING)
+    private TipoEvento tipo;
+
+    private Long personagemId;
+
+    private Long cpf;
+
+    private String nome;
+
+    private LocalDate dataNascimento;
+
+    private String serie;
+
+    private LocalDateTime dataHora;
+
+    private boolean publicado;  // entregue a todos os sinks
+
+    public PersonagemEvento(TipoEvento tipo, Personagem personagem) {
+        this(null, tipo, personagem.getId(), personagem.getCpf(), personagem.getNome(),
+                personagem.getDataNascimento(), personagem.getSerie(), LocalDateTime.now(), false);
+    }
+
+}
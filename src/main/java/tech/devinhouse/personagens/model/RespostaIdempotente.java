@@ -0,0 +1,41 @@
+package tech.devinhouse.personagens.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Lob;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(RespostaIdempotenteId.class)
+public class RespostaIdempotente {
+
+    @Id
+    private String cliente;
+
+    @Id
+    private String chave;
+
+    private Integer status;
+
+    private String location;
+
+    private String tipoConteudo;
+
+    @Lob
+    @Column(length = 65536)
+    private byte[] corpo;
+
+    private String impressao;  // hash do corpo da requisicao original
+
+    private LocalDateTime criadoEm;
+
+}
@@ -0,0 +1,18 @@
+package tech.devinhouse.personagens.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RespostaIdempotenteId implements Serializable {
+
+    private String cliente;
+
+    private String chave;
+
+}
@@ -0,0 +1,9 @@
+package tech.devinhouse.personagens.model;
+
+public enum TipoEvento {
+
+    INSERCAO,
+    ALTERACAO,
+    EXCLUSAO
+
+}
@@ -0,0 +1,44 @@
+package tech.devinhouse.personagens.rastreamento;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// buffer circular sem lock: cada escritor reserva uma posicao com getAndIncrement e sobrescreve o item mais antigo
+class AnelCircular<T> {
+
+    private final AtomicReferenceArray<T> itens;
+
+    private final AtomicLong sequencia = new AtomicLong();
+
+    private final int mascara;
+
+    AnelCircular(int capacidade) {
+        int tamanho = Integer.highestOneBit(Math.max(2, capacidade) * 2 - 1);
+        itens = new AtomicReferenceArray<>(tamanho);
+        mascara = tamanho - 1;
+    }
+
+    void registrar(T item) {
+        itens.set((int) (sequencia.getAndIncrement() & mascara), item);
+    }
+
+    // do mais recente para o mais antigo; uma posicao reservada e ainda nao escrita pode trazer um item antigo ou faltar
+    List<T> recentes(int quantidade) {
+        long fim = sequencia.get();
+        long inicio = Math.max(0, fim - Math.min(quantidade, itens.length()));
+        List<T> lista = new ArrayList<>((int) (fim - inicio));
+        for (long i = fim - 1; i >= inicio; i--) {
+            T item = itens.get((int) (i & mascara));
+            if (item != null)
+                lista.add(item);
+        }
+        return lista;
+    }
+
+    int capacidade() {
+        return itens.length();
+    }
+
+}
@@ -0,0 +1,15 @@
+package tech.devinhouse.personagens.rastreamento;
+
+public enum Etapa {
+
+    REQUISICAO,     // requisicao inteira, medida no filtro
+    LEITURA,        // desserializacao do corpo e bean validation, antes de entrar no controller
+    CONTROLLER,
+    MAPEAMENTO,     // ModelMapper
+    VALIDACAO,      // ValidadorPersonagem
+    SERVICE,
+    REPOSITORIO,
+    SQL,
+    SERIALIZACAO    // escrita do corpo da resposta pelo Jackson
+
+}
@@ -0,0 +1,94 @@
+package tech.devinhouse.personagens.rastreamento;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// guarda os ultimos rastros e os lentos em buffers circulares e mede a latencia de cada etapa;
+// os percentis dos timers do micrometer sao calculados com HdrHistogram
+@Component
+@Slf4j
+public class Rastreador {
+
+    public static final String METRICA = "personagens.rastreamento.etapa";
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${personagens.rastreamento.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${personagens.rastreamento.limite-lento-ms:500}")
+    private long limiteLentoMs;
+
+    @Value("${personagens.rastreamento.capacidade:1024}")
+    private int capacidade;
+
+    @Value("${personagens.rastreamento.capacidade-lentos:64}")
+    private int capacidadeLentos;
+
+    private final Map<Etapa, Timer> timers = new EnumMap<>(Etapa.class);
+
+    private AnelCircular<RastroConcluido> recentes;
+
+    private AnelCircular<RastroConcluido> lentos;
+
+    @PostConstruct
+    public void iniciar() {
+        for (Etapa etapa : Etapa.values())
+            timers.put(etapa, Timer.builder(METRICA)
+                    .tag("etapa", etapa.name().toLowerCase())
+                    .publishPercentiles(0.5, 0.9, 0.99, 0.999)
+                    .register(registry));
+        recentes = new AnelCircular<>(capacidade);
+        lentos = new AnelCircular<>(capacidadeLentos);
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    public long getLimiteLentoMs() {
+        return limiteLentoMs;
+    }
+
+    public Timer timer(Etapa etapa) {
+        return timers.get(etapa);
+    }
+
+    public List<RastroConcluido> recentes(int quantidade) {
+        return recentes.recentes(quantidade);
+    }
+
+    public List<RastroConcluido> lentos(int quantidade) {
+        return lentos.recentes(quantidade);
+    }
+
+    Rastro iniciar(String metodo) {
+        return Rastro.iniciar(this, metodo);
+    }
+
+    void medir(Etapa etapa, long nanos) {
+        timers.get(etapa).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void concluir(Rastro rastro, String rota, int status) {
+        RastroConcluido concluido = rastro.concluir(rota, status);
+        recentes.registrar(concluido);
+        if (concluido.duracaoUs() >= limiteLentoMs * 1000) {
+            lentos.registrar(concluido);
+            log.warn("Requisicao lenta: {} {} em {} ms {}", concluido.metodo(), concluido.rota(),
+                    concluido.duracaoUs() / 1000, concluido.totaisUs());
+        }
+    }
+
+}
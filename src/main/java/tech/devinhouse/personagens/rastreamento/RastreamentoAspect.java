@@ -0,0 +1,59 @@
+package tech.devinhouse.personagens.rastreamento;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+@Aspect
+@Component
+public class RastreamentoAspect {
+
+    @Around("within(tech.devinhouse.personagens.controller..*)")
+    public Object controller(ProceedingJoinPoint ponto) throws Throwable {
+        Rastro rastro = Rastro.atual();
+        if (rastro == null)
+            return ponto.proceed();
+        rastro.fecharDesdeMarca(Etapa.LEITURA, "argumentos");
+        try {
+            return medir(rastro, Etapa.CONTROLLER, ponto);
+        } finally {
+            rastro.marcar();
+        }
+    }
+
+    @Around("execution(public * tech.devinhouse.personagens.service.PersonagemService.*(..))")
+    public Object service(ProceedingJoinPoint ponto) throws Throwable {
+        return medir(Etapa.SERVICE, ponto);
+    }
+
+    @Around("this(tech.devinhouse.personagens.repository.PersonagemRepository)")
+    public Object repositorio(ProceedingJoinPoint ponto) throws Throwable {
+        return medir(Etapa.REPOSITORIO, ponto);
+    }
+
+    @Around("execution(public * org.modelmapper.ModelMapper.map(..))")
+    public Object mapeamento(ProceedingJoinPoint ponto) throws Throwable {
+        return medir(Etapa.MAPEAMENTO, ponto);
+    }
+
+    @Around("execution(public * tech.devinhouse.personagens.validacao.ValidadorPersonagem.*(..))")
+    public Object validacao(ProceedingJoinPoint ponto) throws Throwable {
+        return medir(Etapa.VALIDACAO, ponto);
+    }
+
+    private Object medir(Etapa etapa, ProceedingJoinPoint ponto) throws Throwable {
+        Rastro rastro = Rastro.atual();
+        return rastro == null ? ponto.proceed() : medir(rastro, etapa, ponto);
+    }
+
+    private Object medir(Rastro rastro, Etapa etapa, ProceedingJoinPoint ponto) throws Throwable {
+        long inicio = rastro.abrir();
+        try {
+            return ponto.proceed();
+        } finally {
+            rastro.fechar(etapa, ponto.getSignature().getDeclaringType().getSimpleName() + "." + ponto.getSignature().getName(), inicio);
+        }
+    }
+
+}
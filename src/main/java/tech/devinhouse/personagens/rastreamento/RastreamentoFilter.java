@@ -0,0 +1,52 @@
+package tech.devinhouse.personagens.rastreamento;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+
+// abre o rastro antes dos demais filtros, para que a etapa REQUISICAO inclua idempotencia e limites
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RastreamentoFilter extends OncePerRequestFilter {
+
+    private static final String SEM_ROTA = "(sem rota)";
+
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    @Autowired
+    private Rastreador rastreador;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !rastreador.isHabilitado() || !urlPathHelper.getPathWithinApplication(request).startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Rastro rastro = rastreador.iniciar(request.getMethod());
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            rastreador.concluir(rastro, rota(request), response.getStatus());
+        }
+    }
+
+    // o padrao da rota, e nao a URI: os rastros ficam expostos e a URI traz ids e CPFs; respostas dadas antes do
+    // mapeamento (idempotencia, limites, 404) ficam sem rota
+    private static String rota(HttpServletRequest request) {
+        Object padrao = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return padrao != null ? padrao.toString() : SEM_ROTA;
+    }
+
+}
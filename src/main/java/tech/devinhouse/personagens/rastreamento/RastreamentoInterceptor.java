@@ -0,0 +1,29 @@
+package tech.devinhouse.personagens.rastreamento;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+// com o aspecto, separa o tempo do Spring antes do controller (LEITURA) e depois dele (SERIALIZACAO)
+@Component
+public class RastreamentoInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Rastro rastro = Rastro.atual();
+        if (rastro != null)
+            rastro.marcar();
+        return true;
+    }
+
+    // em controllers REST o corpo ja foi escrito quando o postHandle eh chamado
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) {
+        Rastro rastro = Rastro.atual();
+        if (rastro != null)
+            rastro.fecharDesdeMarca(Etapa.SERIALIZACAO, "resposta");
+    }
+
+}
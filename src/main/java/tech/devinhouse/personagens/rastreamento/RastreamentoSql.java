@@ -0,0 +1,47 @@
+package tech.devinhouse.personagens.rastreamento;
+
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// o inspector recebe o texto do SQL ao preparar o statement e o listener de sessao marca o inicio e o fim da execucao
+@Component
+public class RastreamentoSql implements HibernatePropertiesCustomizer, StatementInspector {
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+        hibernateProperties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, Execucao.class.getName());
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Rastro rastro = Rastro.atual();
+        if (rastro != null)
+            rastro.sqlPreparado(sql);
+        return sql;
+    }
+
+    public static class Execucao extends BaseSessionEventListener {
+
+        @Override
+        public void jdbcExecuteStatementStart() {
+            Rastro rastro = Rastro.atual();
+            if (rastro != null)
+                rastro.sqlIniciado();
+        }
+
+        @Override
+        public void jdbcExecuteStatementEnd() {
+            Rastro rastro = Rastro.atual();
+            if (rastro != null)
+                rastro.sqlConcluido();
+        }
+
+    }
+
+}
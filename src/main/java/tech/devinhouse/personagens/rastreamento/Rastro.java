@@ -0,0 +1,119 @@
+package tech.devinhouse.personagens.rastreamento;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// rastro da requisicao em andamento, preso a thread que a atende; nao eh thread-safe
+class Rastro {
+
+    private static final ThreadLocal<Rastro> ATUAL = new ThreadLocal<>();
+
+    private static final int MAXIMO_TRECHOS = 256;
+
+    private static final int MAXIMO_SQL = 500;
+
+    private final Rastreador rastreador;
+
+    private final String metodo;
+
+    private final Instant inicio = Instant.now();
+
+    private final long inicioNanos = System.nanoTime();
+
+    private final long[] totais = new long[Etapa.values().length];
+
+    private final List<RastroConcluido.Trecho> trechos = new ArrayList<>();
+
+    private int descartados;
+
+    private int profundidade;
+
+    private long marca;
+
+    private String sql;
+
+    private long inicioSql;
+
+    private Rastro(Rastreador rastreador, String metodo) {
+        this.rastreador = rastreador;
+        this.metodo = metodo;
+    }
+
+    static Rastro iniciar(Rastreador rastreador, String metodo) {
+        Rastro rastro = new Rastro(rastreador, metodo);
+        ATUAL.set(rastro);
+        return rastro;
+    }
+
+    static Rastro atual() {
+        return ATUAL.get();
+    }
+
+    long abrir() {
+        profundidade++;
+        return System.nanoTime();
+    }
+
+    void fechar(Etapa etapa, String nome, long inicio) {
+        profundidade--;
+        registrar(etapa, nome, inicio, System.nanoTime());
+    }
+
+    // marca um instante entre o interceptor e o controller, para medir o que o Spring faz antes e depois dele
+    void marcar() {
+        marca = System.nanoTime();
+    }
+
+    void fecharDesdeMarca(Etapa etapa, String nome) {
+        if (marca != 0)
+            registrar(etapa, nome, marca, System.nanoTime());
+        marca = 0;
+    }
+
+    void sqlPreparado(String sql) {
+        this.sql = sql.length() > MAXIMO_SQL ? sql.substring(0, MAXIMO_SQL) + "..." : sql;
+    }
+
+    void sqlIniciado() {
+        inicioSql = System.nanoTime();
+    }
+
+    void sqlConcluido() {
+        if (inicioSql != 0)
+            registrar(Etapa.SQL, sql, inicioSql, System.nanoTime());
+        inicioSql = 0;
+    }
+
+    RastroConcluido concluir(String rota, int status) {
+        ATUAL.remove();
+        long duracao = System.nanoTime() - inicioNanos;
+        totais[Etapa.REQUISICAO.ordinal()] = duracao;
+        rastreador.medir(Etapa.REQUISICAO, duracao);
+        Map<Etapa, Long> totaisUs = new EnumMap<>(Etapa.class);
+        for (Etapa etapa : Etapa.values())
+            if (totais[etapa.ordinal()] > 0)
+                totaisUs.put(etapa, micros(totais[etapa.ordinal()]));
+        trechos.sort(Comparator.comparingLong(RastroConcluido.Trecho::inicioUs));
+        return new RastroConcluido(metodo, rota, status, inicio, micros(duracao), totaisUs, List.copyOf(trechos), descartados);
+    }
+
+    private void registrar(Etapa etapa, String nome, long inicio, long fim) {
+        long duracao = fim - inicio;
+        totais[etapa.ordinal()] += duracao;
+        rastreador.medir(etapa, duracao);
+        if (trechos.size() < MAXIMO_TRECHOS)
+            trechos.add(new RastroConcluido.Trecho(etapa, nome, micros(inicio - inicioNanos), micros(duracao), profundidade));
+        else
+            descartados++;
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+}
@@ -0,0 +1,15 @@
+package tech.devinhouse.personagens.rastreamento;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+// tempos em microssegundos; o inicio de cada trecho eh relativo ao inicio da requisicao. A rota eh o padrao
+// mapeado (/api/personagens/cpf/{cpf}), nunca a URI com os valores
+public record RastroConcluido(String metodo, String rota, int status, Instant inicio, long duracaoUs,
+                              Map<Etapa, Long> totaisUs, List<Trecho> trechos, int trechosDescartados) {
+
+    public record Trecho(Etapa etapa, String nome, long inicioUs, long duracaoUs, int profundidade) {
+    }
+
+}
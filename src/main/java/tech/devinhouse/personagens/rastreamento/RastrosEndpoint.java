@@ -0,0 +1,55 @@
+package tech.devinhouse.personagens.rastreamento;
+
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// GET /actuator/rastros: latencia por etapa, requisicoes lentas e ultimas requisicoes
+@Component
+@Endpoint(id = "rastros")
+public class RastrosEndpoint {
+
+    private static final int RECENTES_PADRAO = 20;
+
+    @Autowired
+    private Rastreador rastreador;
+
+    @ReadOperation
+    public Map<String, Object> rastros(@Nullable Integer recentes) {
+        Map<Etapa, Map<String, Object>> etapas = new LinkedHashMap<>();
+        for (Etapa etapa : Etapa.values()) {
+            HistogramSnapshot snapshot = rastreador.timer(etapa).takeSnapshot();
+            if (snapshot.count() > 0)
+                etapas.put(etapa, resumir(snapshot));
+        }
+        Map<String, Object> resposta = new LinkedHashMap<>();
+        resposta.put("limiteLentoMs", rastreador.getLimiteLentoMs());
+        resposta.put("etapas", etapas);
+        resposta.put("lentos", rastreador.lentos(Integer.MAX_VALUE));
+        resposta.put("recentes", rastreador.recentes(recentes == null ? RECENTES_PADRAO : recentes));
+        return resposta;
+    }
+
+    private static Map<String, Object> resumir(HistogramSnapshot snapshot) {
+        Map<String, Object> resumo = new LinkedHashMap<>();
+        resumo.put("chamadas", snapshot.count());
+        resumo.put("mediaMs", snapshot.mean(TimeUnit.MILLISECONDS));
+        resumo.put("maximoMs", snapshot.max(TimeUnit.MILLISECONDS));
+        for (ValueAtPercentile percentil : snapshot.percentileValues())
+            resumo.put("p" + formatar(percentil.percentile() * 100) + "Ms", percentil.value(TimeUnit.MILLISECONDS));
+        return resumo;
+    }
+
+    private static String formatar(double percentil) {
+        return percentil == Math.floor(percentil) ? String.valueOf((long) percentil) : String.valueOf(percentil);
+    }
+
+}
@@ -0,0 +1,101 @@
+package tech.devinhouse.personagens.repository;
+
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.repository.query.FluentQuery;
+import tech.devinhouse.personagens.model.Personagem;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// consulta fluente do query by example sobre os registros ja filtrados; como no JPA, projecao so por interface
+class ConsultaExemplo<T> implements FluentQuery.FetchableFluentQuery<T> {
+
+    private static final ProjectionFactory PROJECOES = new SpelAwareProxyProjectionFactory();
+
+    private final List<Personagem> registros;
+
+    private final Sort sort;
+
+    private final Function<Personagem, T> conversao;
+
+    ConsultaExemplo(List<Personagem> registros, Sort sort, Function<Personagem, T> conversao) {
+        this.registros = registros;
+        this.sort = sort;
+        this.conversao = conversao;
+    }
+
+    @Override
+    public FluentQuery.FetchableFluentQuery<T> sortBy(Sort sort) {
+        return new ConsultaExemplo<>(registros, this.sort.and(sort), conversao);
+    }
+
+    @Override
+    public <R> FluentQuery.FetchableFluentQuery<R> as(Class<R> tipo) {
+        if (tipo.isAssignableFrom(Personagem.class))
+            return new ConsultaExemplo<>(registros, sort, tipo::cast);
+        if (!tipo.isInterface())
+            throw new UnsupportedOperationException("Projecao em classe nao suportada, use uma interface: " + tipo.getName());
+        return new ConsultaExemplo<>(registros, sort, p -> PROJECOES.createProjection(tipo, p));
+    }
+
+    // os registros ja estao inteiros em memoria: a lista de propriedades nao muda o que eh lido
+    @Override
+    public FluentQuery.FetchableFluentQuery<T> project(Collection<String> propriedades) {
+        return this;
+    }
+
+    @Override
+    public T oneValue() {
+        if (registros.size() > 1)
+            throw new IncorrectResultSizeDataAccessException(1, registros.size());
+        return registros.isEmpty() ? null : conversao.apply(registros.get(0));
+    }
+
+    @Override
+    public T firstValue() {
+        List<Personagem> ordenados = ordenar(sort);
+        return ordenados.isEmpty() ? null : conversao.apply(ordenados.get(0));
+    }
+
+    @Override
+    public List<T> all() {
+        return ordenar(sort).stream().map(conversao).toList();
+    }
+
+    @Override
+    public Page<T> page(Pageable pageable) {
+        return PersonagemRepositoryBase.paginar(ordenar(sort.and(pageable.getSort())), pageable).map(conversao);
+    }
+
+    @Override
+    public Stream<T> stream() {
+        return all().stream();
+    }
+
+    @Override
+    public long count() {
+        return registros.size();
+    }
+
+    @Override
+    public boolean exists() {
+        return !registros.isEmpty();
+    }
+
+    private List<Personagem> ordenar(Sort ordem) {
+        if (ordem.isUnsorted())
+            return registros;
+        List<Personagem> lista = new ArrayList<>(registros);
+        lista.sort(PersonagemRepositoryBase.comparador(ordem));
+        return lista;
+    }
+
+}
@@ -0,0 +1,10 @@
+package tech.devinhouse.personagens.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import tech.devinhouse.personagens.model.CursorSink;
+
+@Repository
+public interface CursorSinkRepository extends JpaRepository<CursorSink, String> {
+
+}
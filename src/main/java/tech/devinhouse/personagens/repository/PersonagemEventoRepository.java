@@ -0,0 +1,26 @@
+package tech.devinhouse.personagens.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import tech.devinhouse.personagens.model.PersonagemEvento;
+
+import java.util.List;
+
+@Repository
+@Transactional(readOnly = true)
+public interface PersonagemEventoRepository extends JpaRepository<PersonagemEvento, Long> {
+
+    List<PersonagemEvento> findTop100ByIdGreaterThanOrderByIdAsc(Long id);
+
+    @Query("SELECT COALESCE(MAX(e.id), 0) FROM PersonagemEvento e WHERE e.publicado = true")
+    long ultimoPublicado();
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE PersonagemEvento e SET e.publicado = true WHERE e.publicado = false AND e.id <= :id")
+    int marcarPublicadosAte(long id);
+
+}
@@ -3,6 +3,7 @@ package tech.devinhouse.personagens.repository;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import tech.devinhouse.personagens.model.Personagem;
 
 import java.time.LocalDate;
@@ -10,6 +11,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
+@Transactional(readOnly = true)
 public interface PersonagemRepository extends JpaRepository<Personagem, Long> {
 
     boolean existsPersonagemByCpf(Long cpf);
@@ -19,6 +21,12 @@ public interface PersonagemRepository extends JpaRepository<Personagem, Long> {
     @Query("SELECT p FROM Personagem p WHERE p.dataNascimento > :data") // jpql
     List<Personagem> consultarPorDataNascimentoPosteriorA(LocalDate data);
 
+    @Query("SELECT p FROM Personagem p WHERE p.dataNascimento <= :data")
+    List<Personagem> consultarPorDataNascimentoAteh(LocalDate data);
+
+    @Query("SELECT p FROM Personagem p WHERE p.dataNascimento > :inicio AND p.dataNascimento <= :fim")
+    List<Personagem> consultarPorDataNascimentoEntre(LocalDate inicio, LocalDate fim);
+
     @Query("SELECT p FROM Personagem p WHERE p.nome LIKE :nomeParcial")
     List<Personagem> consultarPorNomeParcial(String nomeParcial);
 
@@ -0,0 +1,372 @@
+package tech.devinhouse.personagens.repository;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.*;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.data.support.ExampleMatcherAccessor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tech.devinhouse.personagens.model.Personagem;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.StreamSupport;
+
+// base para implementacoes de PersonagemRepository fora do JPA: os metodos do JpaRepository sao montados
+// sobre poucas operacoes primitivas e as consultas usam varredura, que as subclasses podem trocar por indices
+@Slf4j
+public abstract class PersonagemRepositoryBase implements PersonagemRepository {
+
+    // campos comparados pelo query by example
+    private static final Map<String, Function<Personagem, Object>> CAMPOS = new LinkedHashMap<>();
+
+    static {
+        CAMPOS.put("id", Personagem::getId);
+        CAMPOS.put("cpf", Personagem::getCpf);
+        CAMPOS.put("nome", Personagem::getNome);
+        CAMPOS.put("dataNascimento", Personagem::getDataNascimento);
+        CAMPOS.put("serie", Personagem::getSerie);
+    }
+
+    private final AtomicInteger compensacoes = new AtomicInteger();
+
+    // grava uma copia; atribui id quando nulo ou inexistente, como o merge do JPA com IDENTITY
+    protected abstract Personagem gravar(Personagem personagem);
+
+    protected abstract Optional<Personagem> buscar(long id);
+
+    protected abstract boolean remover(long id);
+
+    // todos os registros ordenados por id
+    protected abstract List<Personagem> todos();
+
+    @Override
+    public boolean existsPersonagemByCpf(Long cpf) {
+        return findByCpf(cpf).isPresent();
+    }
+
+    @Override
+    public Optional<Personagem> findByCpf(Long cpf) {
+        return cpf == null ? Optional.empty() : filtrar(p -> cpf.equals(p.getCpf())).stream().findFirst();
+    }
+
+    @Override
+    public List<Personagem> consultarPorDataNascimentoPosteriorA(LocalDate data) {
+        return filtrar(p -> p.getDataNascimento() != null && p.getDataNascimento().isAfter(data));
+    }
+
+    @Override
+    public List<Personagem> consultarPorDataNascimentoAteh(LocalDate data) {
+        return filtrar(p -> p.getDataNascimento() != null && !p.getDataNascimento().isAfter(data));
+    }
+
+    @Override
+    public List<Personagem> consultarPorDataNascimentoEntre(LocalDate inicio, LocalDate fim) {
+        return filtrar(p -> p.getDataNascimento() != null
+                && p.getDataNascimento().isAfter(inicio) && !p.getDataNascimento().isAfter(fim));
+    }
+
+    @Override
+    public List<Personagem> consultarPorNomeParcial(String nomeParcial) {
+        Pattern padrao = padraoLike(nomeParcial);
+        return filtrar(p -> p.getNome() != null && padrao.matcher(p.getNome()).matches());
+    }
+
+    protected List<Personagem> filtrar(Predicate<Personagem> filtro) {
+        return todos().stream().filter(filtro).toList();
+    }
+
+    // LIKE do JPQL: % qualquer sequencia, _ um caractere
+    protected static Pattern padraoLike(String like) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : like.toCharArray()) {
+            if (c == '%' || c == '_') {
+                regex.append(Pattern.quote(literal.toString())).append(c == '%' ? ".*" : ".");
+                literal.setLength(0);
+            } else {
+                literal.append(c);
+            }
+        }
+        regex.append(Pattern.quote(literal.toString()));
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    // prefixo literal do LIKE, usado para limitar a varredura em indices ordenados por nome
+    protected static String prefixoLike(String like) {
+        int i = 0;
+        while (i < like.length() && like.charAt(i) != '%' && like.charAt(i) != '_')
+            i++;
+        return like.substring(0, i);
+    }
+
+    // implementacoes fora do JPA nao participam da transacao do service: se ela for desfeita, a gravacao eh
+    // desfeita em seguida, da mais recente para a mais antiga. Eh uma compensacao, nao um commit atomico:
+    // uma queda entre o rollback e a compensacao deixa a gravacao
+    protected void desfazerNoRollback(Runnable desfazer) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            return;
+        int ordem = -compensacoes.incrementAndGet();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public int getOrder() {
+                return ordem;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK)
+                    return;
+                try {
+                    desfazer.run();
+                } catch (RuntimeException e) {
+                    log.error("Falha ao desfazer gravacao apos rollback: {}", e.getMessage());
+                }
+            }
+        });
+    }
+
+    protected static Personagem copiar(Personagem p) {
+        return new Personagem(p.getId(), p.getCpf(), p.getNome(), p.getDataNascimento(), p.getSerie());
+    }
+
+    // CrudRepository
+
+    @Override
+    public <S extends Personagem> S save(S entity) {
+        Personagem gravado = gravar(entity);
+        entity.setId(gravado.getId());
+        return entity;
+    }
+
+    @Override
+    public <S extends Personagem> List<S> saveAll(Iterable<S> entities) {
+        return StreamSupport.stream(entities.spliterator(), false).map(this::save).toList();
+    }
+
+    @Override
+    public Optional<Personagem> findById(Long id) {
+        return buscar(id);
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return buscar(id).isPresent();
+    }
+
+    @Override
+    public List<Personagem> findAll() {
+        return todos();
+    }
+
+    @Override
+    public List<Personagem> findAllById(Iterable<Long> ids) {
+        return StreamSupport.stream(ids.spliterator(), false)
+                .map(this::buscar).flatMap(Optional::stream).toList();
+    }
+
+    @Override
+    public long count() {
+        return todos().size();
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        if (!remover(id))
+            throw new EmptyResultDataAccessException("Personagem com id " + id + " nao existe", 1);
+    }
+
+    @Override
+    public void delete(Personagem entity) {
+        if (entity.getId() != null)
+            remover(entity.getId());
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends Long> ids) {
+        ids.forEach(this::deleteById);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Personagem> entities) {
+        entities.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        todos().forEach(this::delete);
+    }
+
+    // PagingAndSortingRepository
+
+    @Override
+    public List<Personagem> findAll(Sort sort) {
+        List<Personagem> lista = new ArrayList<>(todos());
+        if (sort.isSorted())
+            lista.sort(comparador(sort));
+        return lista;
+    }
+
+    @Override
+    public Page<Personagem> findAll(Pageable pageable) {
+        return paginar(findAll(pageable.getSort()), pageable);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected static Comparator<Personagem> comparador(Sort sort) {
+        Comparator<Personagem> comparador = null;
+        for (Sort.Order ordem : sort) {
+            Comparator<Comparable> valores = ordem.getNullHandling() == Sort.NullHandling.NULLS_LAST
+                    ? Comparator.nullsLast(Comparator.naturalOrder())
+                    : Comparator.nullsFirst(Comparator.naturalOrder());
+            Comparator<Personagem> campo = Comparator.comparing(
+                    p -> (Comparable) new BeanWrapperImpl(p).getPropertyValue(ordem.getProperty()),
+                    ordem.isAscending() ? valores : valores.reversed());
+            comparador = comparador == null ? campo : comparador.thenComparing(campo);
+        }
+        return comparador;
+    }
+
+    // JpaRepository
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public <S extends Personagem> S saveAndFlush(S entity) {
+        return save(entity);
+    }
+
+    @Override
+    public <S extends Personagem> List<S> saveAllAndFlush(Iterable<S> entities) {
+        return saveAll(entities);
+    }
+
+    @Override
+    public void deleteAllInBatch(Iterable<Personagem> entities) {
+        deleteAll(entities);
+    }
+
+    @Override
+    public void deleteAllByIdInBatch(Iterable<Long> ids) {
+        ids.forEach(this::remover);
+    }
+
+    @Override
+    public void deleteAllInBatch() {
+        deleteAll();
+    }
+
+    @Override
+    @Deprecated
+    public Personagem getOne(Long id) {
+        return getReferenceById(id);
+    }
+
+    @Override
+    @Deprecated
+    public Personagem getById(Long id) {
+        return getReferenceById(id);
+    }
+
+    @Override
+    public Personagem getReferenceById(Long id) {
+        return buscar(id).orElseThrow(() -> new EntityNotFoundException("Personagem com id " + id + " nao existe"));
+    }
+
+    // QueryByExampleExecutor: o exemplo vira um filtro sobre a varredura, com as regras do ExampleMatcher
+
+    @Override
+    public <S extends Personagem> Optional<S> findOne(Example<S> example) {
+        return findBy(example, FluentQuery.FetchableFluentQuery::one);
+    }
+
+    @Override
+    public <S extends Personagem> List<S> findAll(Example<S> example) {
+        return findBy(example, FluentQuery.FetchableFluentQuery::all);
+    }
+
+    @Override
+    public <S extends Personagem> List<S> findAll(Example<S> example, Sort sort) {
+        return findBy(example, q -> q.sortBy(sort).all());
+    }
+
+    @Override
+    public <S extends Personagem> Page<S> findAll(Example<S> example, Pageable pageable) {
+        return findBy(example, q -> q.page(pageable));
+    }
+
+    @Override
+    public <S extends Personagem> long count(Example<S> example) {
+        return filtrar(filtro(example)).size();
+    }
+
+    @Override
+    public <S extends Personagem> boolean exists(Example<S> example) {
+        return !filtrar(filtro(example)).isEmpty();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <S extends Personagem, R> R findBy(Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        return queryFunction.apply(new ConsultaExemplo<>(filtrar(filtro(example)), Sort.unsorted(), p -> (S) p));
+    }
+
+    protected static <T> Page<T> paginar(List<T> lista, Pageable pageable) {
+        if (pageable.isUnpaged())
+            return new PageImpl<>(lista);
+        int inicio = (int) Math.min(pageable.getOffset(), lista.size());
+        int fim = Math.min(inicio + pageable.getPageSize(), lista.size());
+        return new PageImpl<>(lista.subList(inicio, fim), pageable, lista.size());
+    }
+
+    private static Predicate<Personagem> filtro(Example<? extends Personagem> example) {
+        ExampleMatcherAccessor matcher = new ExampleMatcherAccessor(example.getMatcher());
+        List<Predicate<Personagem>> condicoes = new ArrayList<>();
+        CAMPOS.forEach((campo, leitura) -> {
+            if (matcher.isIgnoredPath(campo))
+                return;
+            Optional<Object> valor = matcher.getValueTransformerForPath(campo)
+                    .apply(Optional.ofNullable(leitura.apply(example.getProbe())));
+            if (valor.isEmpty()) {
+                if (matcher.getNullHandler() == ExampleMatcher.NullHandler.INCLUDE)
+                    condicoes.add(p -> leitura.apply(p) == null);
+                return;
+            }
+            Predicate<Object> comparacao = valor.get() instanceof String texto
+                    ? comparacaoTexto(texto, matcher.getStringMatcherForPath(campo), matcher.isIgnoreCaseForPath(campo))
+                    : valor.get()::equals;
+            condicoes.add(p -> comparacao.test(leitura.apply(p)));
+        });
+        if (example.getMatcher().isAllMatching())
+            return p -> condicoes.stream().allMatch(c -> c.test(p));
+        return p -> condicoes.isEmpty() || condicoes.stream().anyMatch(c -> c.test(p));
+    }
+
+    private static Predicate<Object> comparacaoTexto(String esperado, ExampleMatcher.StringMatcher tipo, boolean ignorarCaixa) {
+        String padrao = ignorarCaixa ? esperado.toLowerCase() : esperado;
+        Pattern regex = tipo == ExampleMatcher.StringMatcher.REGEX
+                ? Pattern.compile(esperado, ignorarCaixa ? Pattern.CASE_INSENSITIVE : 0) : null;
+        return valor -> {
+            if (!(valor instanceof String texto))
+                return false;
+            String atual = ignorarCaixa ? texto.toLowerCase() : texto;
+            return switch (tipo) {
+                case DEFAULT, EXACT -> atual.equals(padrao);
+                case STARTING -> atual.startsWith(padrao);
+                case ENDING -> atual.endsWith(padrao);
+                case CONTAINING -> atual.contains(padrao);
+                case REGEX -> regex.matcher(texto).matches();
+            };
+        };
+    }
+
+}
@@ -0,0 +1,21 @@
+package tech.devinhouse.personagens.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import tech.devinhouse.personagens.model.RespostaIdempotente;
+import tech.devinhouse.personagens.model.RespostaIdempotenteId;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface RespostaIdempotenteRepository extends JpaRepository<RespostaIdempotente, RespostaIdempotenteId> {
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RespostaIdempotente r WHERE r.criadoEm < :limite")
+    int excluirCriadasAntesDe(LocalDateTime limite);
+
+}
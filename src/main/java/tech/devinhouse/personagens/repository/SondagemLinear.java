@@ -0,0 +1,72 @@
+package tech.devinhouse.personagens.repository;
+
+// enderecamento aberto com sondagem linear sobre chaves long, comum ao mapa do repositorio em memoria e ao indice
+// do journal; as subclasses so decidem onde ficam as chaves e os valores (arrays no heap ou ByteBuffer direto)
+public abstract class SondagemLinear {
+
+    public static final long VAZIO = Long.MIN_VALUE;  // chave reservada
+
+    protected int capacidade;  // sempre potencia de 2
+
+    protected int tamanho;
+
+    protected abstract long chave(int posicao);
+
+    protected abstract void mover(int de, int para);
+
+    protected abstract void esvaziar(int posicao);
+
+    public int size() {
+        return tamanho;
+    }
+
+    protected static int capacidadePara(int capacidadeInicial) {
+        return Integer.highestOneBit(Math.max(4, capacidadeInicial) * 2 - 1);
+    }
+
+    protected static void validarChave(long chave) {
+        if (chave == VAZIO)
+            throw new IllegalArgumentException("Chave reservada: " + chave);
+    }
+
+    // posicao da chave ou a posicao vazia onde ela deve entrar
+    protected final int posicao(long chave) {
+        int mascara = capacidade - 1;
+        int i = indice(chave);
+        long atual;
+        while ((atual = chave(i)) != VAZIO && atual != chave)
+            i = (i + 1) & mascara;
+        return i;
+    }
+
+    // conta a chave que acabou de ocupar uma posicao vazia; true quando passa do fator de carga 0,75
+    protected final boolean ocupou() {
+        return ++tamanho * 4 > capacidade * 3;
+    }
+
+    // remocao com deslocamento para tras, sem lapides
+    protected final void liberar(int posicao) {
+        int mascara = capacidade - 1;
+        int vazio = posicao;
+        int j = posicao;
+        while (true) {
+            j = (j + 1) & mascara;
+            long chaveJ = chave(j);
+            if (chaveJ == VAZIO)
+                break;
+            int ideal = indice(chaveJ);
+            if (((j - ideal) & mascara) >= ((j - vazio) & mascara)) {
+                mover(j, vazio);
+                vazio = j;
+            }
+        }
+        esvaziar(vazio);
+        tamanho--;
+    }
+
+    private int indice(long chave) {
+        long h = chave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (capacidade - 1);
+    }
+
+}
@@ -0,0 +1,107 @@
+package tech.devinhouse.personagens.repository.journal;
+
+import tech.devinhouse.personagens.repository.SondagemLinear;
+
+import java.nio.ByteBuffer;
+
+// mapa long -> long fora do heap (ByteBuffer direto, 16 bytes por posicao) com sondagem linear; nao eh thread-safe
+class IndiceOffHeap extends SondagemLinear {
+
+    static final long AUSENTE = VAZIO;  // chave reservada e valor de retorno para chave inexistente
+
+    private static final int BYTES_POSICAO = 16;
+
+    private ByteBuffer tabela;
+
+    IndiceOffHeap(int capacidadeInicial) {
+        alocar(capacidadePara(capacidadeInicial));
+    }
+
+    long get(long chave) {
+        int i = posicao(chave);
+        return chave != AUSENTE && chave(i) == chave ? valor(i) : AUSENTE;
+    }
+
+    long put(long chave, long valor) {
+        validarChave(chave);
+        int i = posicao(chave);
+        if (chave(i) == chave) {
+            long anterior = valor(i);
+            gravar(i, chave, valor);
+            return anterior;
+        }
+        gravar(i, chave, valor);
+        if (ocupou())
+            redimensionar();
+        return AUSENTE;
+    }
+
+    long remove(long chave) {
+        int i = posicao(chave);
+        if (chave == AUSENTE || chave(i) != chave)
+            return AUSENTE;
+        long anterior = valor(i);
+        liberar(i);
+        return anterior;
+    }
+
+    void forEach(ParLong acao) {
+        for (int i = 0; i < capacidade; i++) {
+            long chave = chave(i);
+            if (chave != AUSENTE)
+                acao.aceitar(chave, valor(i));
+        }
+    }
+
+    void clear() {
+        for (int i = 0; i < capacidade; i++)
+            esvaziar(i);
+        tamanho = 0;
+    }
+
+    interface ParLong {
+        void aceitar(long chave, long valor);
+    }
+
+    @Override
+    protected long chave(int posicao) {
+        return tabela.getLong(posicao * BYTES_POSICAO);
+    }
+
+    @Override
+    protected void mover(int de, int para) {
+        gravar(para, chave(de), valor(de));
+    }
+
+    @Override
+    protected void esvaziar(int posicao) {
+        gravar(posicao, AUSENTE, 0);
+    }
+
+    private long valor(int i) {
+        return tabela.getLong(i * BYTES_POSICAO + 8);
+    }
+
+    private void gravar(int i, long chave, long valor) {
+        tabela.putLong(i * BYTES_POSICAO, chave);
+        tabela.putLong(i * BYTES_POSICAO + 8, valor);
+    }
+
+    private void alocar(int novaCapacidade) {
+        capacidade = novaCapacidade;
+        tabela = ByteBuffer.allocateDirect(capacidade * BYTES_POSICAO);
+        clear();
+    }
+
+    private void redimensionar() {
+        ByteBuffer antiga = tabela;
+        int capacidadeAntiga = capacidade;
+        alocar(capacidade * 2);
+        for (int i = 0; i < capacidadeAntiga; i++) {
+            long chave = antiga.getLong(i * BYTES_POSICAO);
+            if (chave != AUSENTE)
+                put(chave, antiga.getLong(i * BYTES_POSICAO + 8));
+        }
+    }
+
+}
@@ -0,0 +1,275 @@
+package tech.devinhouse.personagens.repository.journal;
+
+import lombok.extern.slf4j.Slf4j;
+import tech.devinhouse.personagens.model.Personagem;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.zip.CRC32C;
+
+// arquivo de registros somente-anexo mapeado em memoria
+//   cabecalho: int magico, int versao
+//   registro:  int tamanho, int crc32c do conteudo, conteudo
+//   conteudo:  byte tipo, long id [, long cpf, int dia epoch, int tam + utf8 nome, int tam + utf8 serie]
+// o arquivo eh pre-alocado com zeros, entao tamanho 0 marca o fim dos dados
+@Slf4j
+class Journal implements Closeable {
+
+    private static final int MAGICO = 0x504A524E;
+
+    private static final int VERSAO = 1;
+
+    static final int CABECALHO = 8;
+
+    private static final int PREFIXO = 8;
+
+    private static final byte REGISTRO = 1;
+
+    private static final byte EXCLUSAO = 2;
+
+    private static final long CPF_NULO = Long.MIN_VALUE;
+
+    private static final int DATA_NULA = Integer.MIN_VALUE;
+
+    private final FileChannel canal;
+
+    private MappedByteBuffer mapa;
+
+    private int posicao;
+
+    private int duravel;
+
+    private boolean fechado;
+
+    private int aguardando;
+
+    private Thread fsync;
+
+    interface Visitante {
+
+        void registro(int offset, Personagem personagem);
+
+        void exclusao(int offset, long id);
+
+    }
+
+    // abre o arquivo e percorre os registros validos; o que vier depois do primeiro registro invalido eh descartado
+    Journal(Path arquivo, int tamanhoInicial, Visitante visitante) throws IOException {
+        canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean novo = canal.size() == 0;
+        mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(tamanhoInicial, canal.size()));
+        if (novo) {
+            mapa.putInt(0, MAGICO);
+            mapa.putInt(4, VERSAO);
+        } else if (mapa.getInt(0) != MAGICO || mapa.getInt(4) != VERSAO) {
+            canal.close();
+            throw new IOException("Arquivo nao eh um journal de personagens: " + arquivo);
+        }
+        posicao = percorrer(visitante);
+        duravel = posicao;
+    }
+
+    synchronized int anexar(Personagem p) {
+        byte[] nome = bytes(p.getNome());
+        byte[] serie = bytes(p.getSerie());
+        ByteBuffer conteudo = ByteBuffer.allocate(1 + 8 + 8 + 4 + 4 + tamanho(nome) + 4 + tamanho(serie));
+        conteudo.put(REGISTRO).putLong(p.getId());
+        conteudo.putLong(p.getCpf() == null ? CPF_NULO : p.getCpf());
+        conteudo.putInt(p.getDataNascimento() == null ? DATA_NULA : (int) p.getDataNascimento().toEpochDay());
+        putTexto(conteudo, nome);
+        putTexto(conteudo, serie);
+        return anexar(conteudo.array());
+    }
+
+    synchronized int anexarExclusao(long id) {
+        return anexar(ByteBuffer.allocate(1 + 8).put(EXCLUSAO).putLong(id).array());
+    }
+
+    // leitura sem conferir o crc: o registro ja foi validado na abertura ou acabou de ser gravado
+    synchronized Personagem ler(int offset) {
+        return decodificar(mapa.slice(offset + PREFIXO, mapa.getInt(offset)));
+    }
+
+    synchronized int tamanhoRegistro(int offset) {
+        return PREFIXO + mapa.getInt(offset);
+    }
+
+    synchronized int getPosicao() {
+        return posicao;
+    }
+
+    // grava em disco periodicamente; quem precisa de durabilidade aguarda e acorda a thread, que grava
+    // de uma so vez tudo o que foi anexado ate ali (group commit)
+    void iniciarFsync(long intervaloMs) {
+        fsync = new Thread(() -> {
+            while (true) {
+                int alvo;
+                boolean pendente;
+                MappedByteBuffer buffer;
+                synchronized (this) {
+                    try {
+                        if (!fechado && (aguardando == 0 || posicao == duravel))
+                            wait(intervaloMs);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    if (fechado)
+                        return;
+                    alvo = posicao;
+                    pendente = alvo > duravel;
+                    buffer = mapa;
+                }
+                if (pendente) {
+                    buffer.force();
+                    synchronized (this) {
+                        duravel = Math.max(duravel, alvo);
+                        notifyAll();
+                    }
+                }
+            }
+        }, "journal-fsync");
+        fsync.setDaemon(true);
+        fsync.start();
+    }
+
+    // um journal fechado ja gravou tudo em disco no close
+    synchronized void aguardarDurabilidade(int ate) throws InterruptedException {
+        if (duravel >= ate || fechado)
+            return;
+        aguardando++;
+        notifyAll();  // acorda a thread de fsync; notificar a cada volta faria os que aguardam se acordarem em ciclo
+        try {
+            while (duravel < ate && !fechado)
+                wait();
+        } finally {
+            aguardando--;
+        }
+    }
+
+    synchronized void forcar() {
+        mapa.force();
+        duravel = posicao;
+        notifyAll();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (fechado)
+                return;
+            mapa.force();
+            duravel = posicao;
+            fechado = true;
+            notifyAll();
+        }
+        if (fsync != null) {
+            try {
+                fsync.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        canal.close();
+    }
+
+    private int anexar(byte[] conteudo) {
+        int necessario = PREFIXO + conteudo.length;
+        garantirEspaco(necessario);
+        CRC32C crc = new CRC32C();
+        crc.update(conteudo);
+        int offset = posicao;
+        mapa.putInt(offset + 4, (int) crc.getValue());
+        mapa.put(offset + PREFIXO, conteudo);
+        mapa.putInt(offset, conteudo.length);  // tamanho por ultimo: sem ele o registro nao existe
+        posicao += necessario;
+        return offset;
+    }
+
+    private void garantirEspaco(int necessario) {
+        if ((long) posicao + necessario + 4 <= mapa.capacity())  // + 4 para o marcador de fim
+            return;
+        long novoTamanho = Math.min(Integer.MAX_VALUE, Math.max((long) mapa.capacity() * 2, (long) posicao + necessario + 4));
+        if (novoTamanho < (long) posicao + necessario + 4)
+            throw new IllegalStateException("Journal excedeu o tamanho maximo de 2GB");
+        try {
+            mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0, novoTamanho);
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao aumentar o journal", e);
+        }
+    }
+
+    private int percorrer(Visitante visitante) {
+        int offset = CABECALHO;
+        while (offset + PREFIXO <= mapa.capacity()) {
+            int tamanho = mapa.getInt(offset);
+            if (tamanho == 0)
+                return offset;
+            if (tamanho < 9 || (long) offset + PREFIXO + tamanho > mapa.capacity() || !crcValido(offset, tamanho)) {
+                log.warn("Registro invalido no offset {} do journal, descartando o restante do arquivo", offset);
+                zerar(offset);
+                return offset;
+            }
+            ByteBuffer conteudo = mapa.slice(offset + PREFIXO, tamanho);
+            if (conteudo.get(0) == EXCLUSAO)
+                visitante.exclusao(offset, conteudo.getLong(1));
+            else
+                visitante.registro(offset, decodificar(conteudo));
+            offset += PREFIXO + tamanho;
+        }
+        return offset;
+    }
+
+    private boolean crcValido(int offset, int tamanho) {
+        CRC32C crc = new CRC32C();
+        crc.update(mapa.slice(offset + PREFIXO, tamanho));
+        return (int) crc.getValue() == mapa.getInt(offset + 4);
+    }
+
+    private void zerar(int offset) {
+        byte[] zeros = new byte[8192];
+        for (int i = offset; i < mapa.capacity(); i += zeros.length)
+            mapa.put(i, zeros, 0, Math.min(zeros.length, mapa.capacity() - i));
+        mapa.force();
+    }
+
+    private static Personagem decodificar(ByteBuffer conteudo) {
+        long id = conteudo.getLong(1);
+        long cpf = conteudo.getLong(9);
+        int dia = conteudo.getInt(17);
+        conteudo.position(21);
+        String nome = getTexto(conteudo);
+        String serie = getTexto(conteudo);
+        return new Personagem(id, cpf == CPF_NULO ? null : cpf, nome, dia == DATA_NULA ? null : LocalDate.ofEpochDay(dia), serie);
+    }
+
+    private static byte[] bytes(String texto) {
+        return texto == null ? null : texto.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int tamanho(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void putTexto(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes == null ? -1 : bytes.length);
+        if (bytes != null)
+            buffer.put(bytes);
+    }
+
+    private static String getTexto(ByteBuffer buffer) {
+        int tamanho = buffer.getInt();
+        if (tamanho < 0)
+            return null;
+        byte[] bytes = new byte[tamanho];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
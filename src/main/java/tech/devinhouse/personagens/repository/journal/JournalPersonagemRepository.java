@@ -0,0 +1,332 @@
+package tech.devinhouse.personagens.repository.journal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tech.devinhouse.personagens.model.Personagem;
+import tech.devinhouse.personagens.repository.PersonagemRepositoryBase;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// repositorio duravel sem banco (perfil "journal"): registros em um arquivo somente-anexo mapeado em memoria,
+// com indices id -> offset e cpf -> id fora do heap e compactacao dos registros alterados/excluidos
+@Repository
+@Primary
+@Profile("journal")
+@Transactional(propagation = Propagation.SUPPORTS)  // nao abre transacao JPA so para acessar o journal; gravacoes sao compensadas no rollback
+@Slf4j
+public class JournalPersonagemRepository extends PersonagemRepositoryBase {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Path arquivo;
+
+    private final int tamanhoInicial;
+
+    private final boolean commitSincrono;
+
+    private final long intervaloFsync;
+
+    @Value("${personagens.journal.compactacao-proporcao:0.5}")
+    private double proporcaoCompactacao = 0.5;
+
+    @Value("${personagens.journal.compactacao-minimo-bytes:1048576}")
+    private long minimoCompactacao = 1024 * 1024;
+
+    private Journal journal;
+
+    private IndiceOffHeap porId;
+
+    private IndiceOffHeap porCpf;
+
+    private long proximoId;
+
+    private long bytesMortos;
+
+    public JournalPersonagemRepository(@Value("${personagens.journal.diretorio:./dados}") Path diretorio,
+                                       @Value("${personagens.journal.tamanho-inicial-mb:16}") int tamanhoInicialMb,
+                                       @Value("${personagens.journal.commit-sincrono:true}") boolean commitSincrono,
+                                       @Value("${personagens.journal.intervalo-fsync-ms:10}") long intervaloFsync) throws IOException {
+        Files.createDirectories(diretorio);
+        this.arquivo = diretorio.resolve("personagens.journal");
+        this.tamanhoInicial = tamanhoInicialMb * 1024 * 1024;
+        this.commitSincrono = commitSincrono;
+        this.intervaloFsync = intervaloFsync;
+    }
+
+    @PostConstruct
+    public void iniciar() throws IOException {
+        lock.writeLock().lock();
+        try {
+            abrir();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Journal de personagens aberto com {} registros ({} bytes mortos)", porId.size(), bytesMortos);
+    }
+
+    @PreDestroy
+    public void encerrar() throws IOException {
+        lock.writeLock().lock();
+        try {
+            journal.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${personagens.journal.compactacao-intervalo-ms:60000}")
+    public void compactarSeNecessario() {
+        boolean compactar;
+        lock.readLock().lock();
+        try {
+            int dados = journal.getPosicao() - Journal.CABECALHO;
+            compactar = bytesMortos >= minimoCompactacao && bytesMortos > dados * proporcaoCompactacao;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (compactar) {
+            try {
+                compactar();
+            } catch (IOException e) {
+                log.error("Falha na compactacao do journal: {}", e.getMessage());
+            }
+        }
+    }
+
+    // reescreve somente os registros vivos em um arquivo novo e troca pelo atual; em caso de falha depois
+    // de fechar o journal atual, reabre o que estiver no arquivo (o original, ou o compactado se a troca ocorreu)
+    public void compactar() throws IOException {
+        lock.writeLock().lock();
+        try {
+            long antes = journal.getPosicao();
+            Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".compactando");
+            boolean fechado = false;
+            try {
+                Files.deleteIfExists(temporario);
+                try (Journal novo = new Journal(temporario, tamanhoInicial, IGNORAR)) {
+                    for (Personagem personagem : ordenadosPorId())
+                        novo.anexar(personagem);
+                    novo.forcar();
+                }
+                journal.close();
+                fechado = true;
+                Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                abrir();
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temporario);
+                if (fechado)
+                    abrir();
+                throw e;
+            }
+            log.info("Journal compactado de {} para {} bytes", antes, journal.getPosicao());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected Personagem gravar(Personagem personagem) {
+        Personagem gravado = copiar(personagem);
+        Personagem anterior;
+        Journal gravadoEm;
+        int fim;
+        lock.writeLock().lock();
+        try {
+            Long id = personagem.getId();
+            long offsetAnterior = id != null ? porId.get(id) : IndiceOffHeap.AUSENTE;
+            anterior = offsetAnterior == IndiceOffHeap.AUSENTE ? null : journal.ler((int) offsetAnterior);
+            gravado.setId(anterior != null ? id : proximoId++);
+            aplicarRegistro(journal.anexar(gravado), gravado);
+            gravadoEm = journal;
+            fim = journal.getPosicao();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        desfazerNoRollback(anterior == null ? () -> remover(gravado.getId()) : () -> restaurar(anterior));
+        aguardarDurabilidade(gravadoEm, fim);
+        return gravado;
+    }
+
+    @Override
+    protected Optional<Personagem> buscar(long id) {
+        lock.readLock().lock();
+        try {
+            long offset = porId.get(id);
+            return offset == IndiceOffHeap.AUSENTE ? Optional.empty() : Optional.of(journal.ler((int) offset));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected boolean remover(long id) {
+        Personagem anterior;
+        Journal gravadoEm;
+        int fim;
+        lock.writeLock().lock();
+        try {
+            long offsetAnterior = porId.get(id);
+            if (offsetAnterior == IndiceOffHeap.AUSENTE)
+                return false;
+            anterior = journal.ler((int) offsetAnterior);
+            int offset = journal.anexarExclusao(id);
+            aplicarExclusao(offset, id);
+            gravadoEm = journal;
+            fim = journal.getPosicao();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        desfazerNoRollback(() -> restaurar(anterior));
+        aguardarDurabilidade(gravadoEm, fim);
+        return true;
+    }
+
+    @Override
+    protected List<Personagem> todos() {
+        lock.readLock().lock();
+        try {
+            return ordenadosPorId();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long count() {
+        lock.readLock().lock();
+        try {
+            return porId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Personagem> findByCpf(Long cpf) {
+        if (cpf == null)
+            return Optional.empty();
+        lock.readLock().lock();
+        try {
+            long id = porCpf.get(cpf);
+            return id == IndiceOffHeap.AUSENTE ? Optional.empty() : Optional.of(journal.ler((int) porId.get(id)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // volta o registro como era antes, com o mesmo id, anexando-o de novo
+    private void restaurar(Personagem personagem) {
+        Journal gravadoEm;
+        int fim;
+        lock.writeLock().lock();
+        try {
+            aplicarRegistro(journal.anexar(personagem), personagem);
+            gravadoEm = journal;
+            fim = journal.getPosicao();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        aguardarDurabilidade(gravadoEm, fim);
+    }
+
+    // a varredura so refaz id -> offset; cpf e espaco morto saem dos registros vivos ao final
+    private void abrir() throws IOException {
+        IndiceOffHeap offsets = new IndiceOffHeap(1024);
+        long[] maiorId = {0};
+        journal = new Journal(arquivo, tamanhoInicial, new Journal.Visitante() {
+            @Override
+            public void registro(int offset, Personagem personagem) {
+                offsets.put(personagem.getId(), offset);
+                maiorId[0] = Math.max(maiorId[0], personagem.getId());
+            }
+
+            @Override
+            public void exclusao(int offset, long id) {
+                offsets.remove(id);
+                maiorId[0] = Math.max(maiorId[0], id);
+            }
+        });
+        porId = offsets;
+        porCpf = new IndiceOffHeap(Math.max(1024, porId.size()));
+        proximoId = maiorId[0] + 1;
+        long vivos = 0;
+        for (Personagem personagem : ordenadosPorId()) {
+            if (personagem.getCpf() != null)
+                porCpf.put(personagem.getCpf(), personagem.getId());
+            vivos += journal.tamanhoRegistro((int) porId.get(personagem.getId()));
+        }
+        bytesMortos = journal.getPosicao() - Journal.CABECALHO - vivos;
+        journal.iniciarFsync(intervaloFsync);
+    }
+
+    private void aplicarRegistro(int offset, Personagem personagem) {
+        long anterior = porId.put(personagem.getId(), offset);
+        if (anterior != IndiceOffHeap.AUSENTE)
+            descartar((int) anterior);
+        if (personagem.getCpf() != null)
+            porCpf.put(personagem.getCpf(), personagem.getId());
+    }
+
+    // a lapide tambem conta como espaco morto: a compactacao nao a copia
+    private void aplicarExclusao(int offset, long id) {
+        long anterior = porId.remove(id);
+        if (anterior != IndiceOffHeap.AUSENTE)
+            descartar((int) anterior);
+        bytesMortos += journal.tamanhoRegistro(offset);
+    }
+
+    private void descartar(int offset) {
+        Personagem anterior = journal.ler(offset);
+        bytesMortos += journal.tamanhoRegistro(offset);
+        if (anterior.getCpf() != null && porCpf.get(anterior.getCpf()) == anterior.getId())
+            porCpf.remove(anterior.getCpf());
+    }
+
+    private List<Personagem> ordenadosPorId() {
+        List<Personagem> lista = new ArrayList<>(porId.size());
+        porId.forEach((id, offset) -> lista.add(journal.ler((int) offset)));
+        lista.sort(Comparator.comparing(Personagem::getId));
+        return lista;
+    }
+
+    // aguarda no journal em que o registro foi anexado: se uma compactacao o trocou nesse meio tempo,
+    // ele ja foi fechado com tudo gravado em disco e o fim conta como duravel
+    private void aguardarDurabilidade(Journal gravadoEm, int fim) {
+        if (!commitSincrono)
+            return;
+        try {
+            gravadoEm.aguardarDurabilidade(fim);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new IOException("Interrompido aguardando gravacao do journal", e));
+        }
+    }
+
+    private static final Journal.Visitante IGNORAR = new Journal.Visitante() {
+        @Override
+        public void registro(int offset, Personagem personagem) {
+        }
+
+        @Override
+        public void exclusao(int offset, long id) {
+        }
+    };
+
+}
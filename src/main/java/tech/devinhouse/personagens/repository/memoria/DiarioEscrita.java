@@ -0,0 +1,285 @@
+package tech.devinhouse.personagens.repository.memoria;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+// persistencia write-behind: as alteracoes entram em uma fila e uma thread grava o diario em lotes;
+// o snapshot eh enfileirado junto com as alteracoes, entao tudo que veio antes dele esta contido nele.
+// Se a gravacao falha, o diario volta ao ultimo ponto gravado e os comandos seguintes sao tentados de novo
+// depois de uma espera; quem aguarda em sincronizar recebe a falha
+@Slf4j
+class DiarioEscrita implements Closeable {
+
+    private static final byte GRAVACAO = 'G';
+
+    private static final byte EXCLUSAO = 'E';
+
+    private final Path arquivoDiario;
+
+    private final Path arquivoSnapshot;
+
+    private final BlockingQueue<Comando> fila = new LinkedBlockingQueue<>();
+
+    private Thread escritor;
+
+    private final long esperaRetentativaMs;
+
+    private FileChannel canal;
+
+    private DataOutputStream saida;
+
+    private long inicioSaida;  // tamanho do diario quando a saida foi aberta
+
+    private long tamanhoGravado;  // o diario ate aqui ja foi descarregado no arquivo
+
+    private boolean reabrir;
+
+    DiarioEscrita(Path diretorio) throws IOException {
+        this(diretorio, 1000);
+    }
+
+    DiarioEscrita(Path diretorio, long esperaRetentativaMs) throws IOException {
+        Files.createDirectories(diretorio);
+        this.arquivoDiario = diretorio.resolve("personagens.log");
+        this.arquivoSnapshot = diretorio.resolve("personagens.snapshot");
+        this.esperaRetentativaMs = esperaRetentativaMs;
+    }
+
+    // le o snapshot e reaplica o diario; um registro incompleto no final (queda durante a escrita) eh descartado
+    void recuperar(Consumer<Registro> gravar, LongConsumer remover) throws IOException {
+        if (Files.exists(arquivoSnapshot)) {
+            try (var entrada = new DataInputStream(new BufferedInputStream(Files.newInputStream(arquivoSnapshot)))) {
+                int quantidade = entrada.readInt();
+                for (int i = 0; i < quantidade; i++)
+                    gravar.accept(Registro.ler(entrada));
+            }
+        }
+        if (!Files.exists(arquivoDiario))
+            return;
+        byte[] conteudo = Files.readAllBytes(arquivoDiario);
+        var bytes = new ByteArrayInputStream(conteudo);
+        var entrada = new DataInputStream(bytes);
+        int valido = 0;
+        try {
+            while (bytes.available() > 0) {
+                byte operacao = entrada.readByte();
+                if (operacao == GRAVACAO)
+                    gravar.accept(Registro.ler(entrada));
+                else if (operacao == EXCLUSAO)
+                    remover.accept(entrada.readLong());
+                else
+                    break;
+                valido = conteudo.length - bytes.available();
+            }
+        } catch (EOFException e) {
+            log.warn("Registro incompleto no final do diario descartado");
+        }
+        if (valido < conteudo.length) {
+            try (FileChannel canal = FileChannel.open(arquivoDiario, StandardOpenOption.WRITE)) {
+                canal.truncate(valido);
+            }
+        }
+    }
+
+    void iniciar() throws IOException {
+        abrirDiario(false);
+        escritor = new Thread(this::executar, "diario-personagens");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    void gravar(Registro registro) {
+        fila.add(new Gravacao(registro));
+    }
+
+    void excluir(long id) {
+        fila.add(new Exclusao(id));
+    }
+
+    void snapshot(List<Registro> registros) {
+        fila.add(new Snapshot(registros));
+    }
+
+    // aguarda a gravacao de tudo que ja foi enfileirado; falha se a gravacao falhou, mesmo que seja tentada de novo
+    void sincronizar() throws InterruptedException, IOException {
+        var concluido = new CompletableFuture<Void>();
+        fila.add(new Sincronizar(concluido));
+        try {
+            concluido.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Falha ao gravar o diario de personagens", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (escritor == null)
+            return;
+        fila.add(new Encerrar());
+        try {
+            escritor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        saida.close();
+    }
+
+    private void executar() {
+        List<Comando> lote = new ArrayList<>();  // nao vazio no inicio da volta: comandos de um lote que falhou
+        while (true) {
+            int gravados = 0;  // comandos do lote ja descarregados no arquivo
+            try {
+                if (lote.isEmpty())
+                    lote.add(fila.take());
+                fila.drainTo(lote);
+                if (reabrir)
+                    reabrirDiario();
+                for (int i = 0; i < lote.size(); i++) {
+                    Comando comando = lote.get(i);
+                    if (comando instanceof Encerrar) {
+                        descarregar();
+                        return;
+                    }
+                    if (comando instanceof Gravacao g) {
+                        saida.writeByte(GRAVACAO);
+                        g.registro().escrever(saida);
+                    } else if (comando instanceof Exclusao e) {
+                        saida.writeByte(EXCLUSAO);
+                        saida.writeLong(e.id());
+                    } else if (comando instanceof Snapshot s) {
+                        descarregar();
+                        gravados = i;
+                        gravarSnapshot(s.registros());
+                        gravados = i + 1;
+                        saida.close();
+                        abrirDiario(true);  // o diario anterior esta todo contido no snapshot
+                    } else if (comando instanceof Sincronizar s) {
+                        descarregar();
+                        gravados = i + 1;
+                        s.concluido().complete(null);
+                    }
+                }
+                descarregar();  // um flush por lote
+                lote.clear();
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                log.error("Falha ao gravar diario de personagens, {} comandos serao gravados de novo: {}",
+                        lote.size() - gravados, e.getMessage());
+                lote.subList(0, gravados).clear();
+                lote.removeIf(c -> c instanceof Sincronizar s && s.concluido().completeExceptionally(e));
+                if (lote.stream().anyMatch(c -> c instanceof Encerrar)) {
+                    log.error("Diario encerrado com {} comandos nao gravados", lote.size() - 1);
+                    return;
+                }
+                reabrir = true;
+                try {
+                    Thread.sleep(esperaRetentativaMs);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // so conta como gravado depois do fsync: o flush sozinho deixa os dados no cache do sistema operacional
+    private void descarregar() throws IOException {
+        saida.flush();
+        canal.force(false);
+        tamanhoGravado = inicioSaida + saida.size();
+    }
+
+    // descarta o que foi escrito depois do ultimo ponto gravado, que pode ter ficado pela metade
+    private void reabrirDiario() throws IOException {
+        try {
+            saida.close();
+        } catch (IOException e) {
+            log.debug("Falha ao fechar o diario com erro: {}", e.getMessage());
+        }
+        try (FileChannel canal = FileChannel.open(arquivoDiario, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            canal.truncate(tamanhoGravado);
+        }
+        abrirDiario(false);
+        reabrir = false;
+    }
+
+    // depois da troca do arquivo o snapshot contem tudo; o diario atual pode ser descartado. O snapshot vai para o
+    // disco antes da troca, e a troca antes do diario ser truncado: uma queda no meio deixa uma das duas copias
+    private void gravarSnapshot(List<Registro> registros) throws IOException {
+        Path temporario = arquivoSnapshot.resolveSibling(arquivoSnapshot.getFileName() + ".tmp");
+        try (FileChannel canalSnapshot = FileChannel.open(temporario,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            var snapshot = new DataOutputStream(new BufferedOutputStream(escreverEm(canalSnapshot)));
+            snapshot.writeInt(registros.size());
+            for (Registro registro : registros)
+                registro.escrever(snapshot);
+            snapshot.flush();
+            canalSnapshot.force(true);
+        }
+        Files.move(temporario, arquivoSnapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forcarDiretorio();
+        tamanhoGravado = 0;
+        log.debug("Snapshot gravado com {} personagens", registros.size());
+    }
+
+    // grava a entrada do diretorio com o novo nome; nem todo sistema permite abrir um diretorio (Windows)
+    private void forcarDiretorio() {
+        try (FileChannel diretorio = FileChannel.open(arquivoSnapshot.getParent(), StandardOpenOption.READ)) {
+            diretorio.force(true);
+        } catch (IOException e) {
+            log.debug("Diretorio do snapshot nao sincronizado: {}", e.getMessage());
+        }
+    }
+
+    private void abrirDiario(boolean truncar) throws IOException {
+        inicioSaida = truncar || !Files.exists(arquivoDiario) ? 0 : Files.size(arquivoDiario);
+        tamanhoGravado = inicioSaida;
+        canal = FileChannel.open(arquivoDiario, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                truncar ? StandardOpenOption.TRUNCATE_EXISTING : StandardOpenOption.APPEND);
+        try {
+            saida = new DataOutputStream(new BufferedOutputStream(escreverEm(canal)));
+        } catch (IOException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    // ponto de extensao para os testes simularem falhas de disco
+    OutputStream escreverEm(FileChannel canal) throws IOException {
+        return Channels.newOutputStream(canal);
+    }
+
+    private sealed interface Comando permits Gravacao, Exclusao, Snapshot, Sincronizar, Encerrar {
+    }
+
+    private record Gravacao(Registro registro) implements Comando {
+    }
+
+    private record Exclusao(long id) implements Comando {
+    }
+
+    private record Snapshot(List<Registro> registros) implements Comando {
+    }
+
+    private record Sincronizar(CompletableFuture<Void> concluido) implements Comando {
+    }
+
+    private record Encerrar() implements Comando {
+    }
+
+}
@@ -0,0 +1,102 @@
+package tech.devinhouse.personagens.repository.memoria;
+
+import tech.devinhouse.personagens.repository.SondagemLinear;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// mapa long -> valor com enderecamento aberto (sondagem linear), sem boxing das chaves; nao eh thread-safe
+class MapaLong<V> extends SondagemLinear {
+
+    private long[] chaves;
+
+    private Object[] valores;
+
+    MapaLong() {
+        this(16);
+    }
+
+    MapaLong(int capacidadeInicial) {
+        alocar(capacidadePara(capacidadeInicial));
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long chave) {
+        int i = posicao(chave);
+        return chave != VAZIO && chaves[i] == chave ? (V) valores[i] : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V put(long chave, V valor) {
+        validarChave(chave);
+        int i = posicao(chave);
+        if (chaves[i] == chave) {
+            V anterior = (V) valores[i];
+            valores[i] = valor;
+            return anterior;
+        }
+        chaves[i] = chave;
+        valores[i] = valor;
+        if (ocupou())
+            redimensionar();
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(long chave) {
+        int i = posicao(chave);
+        if (chave == VAZIO || chaves[i] != chave)
+            return null;
+        V anterior = (V) valores[i];
+        liberar(i);
+        return anterior;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEachValue(Consumer<V> acao) {
+        for (int i = 0; i < capacidade; i++)
+            if (chaves[i] != VAZIO)
+                acao.accept((V) valores[i]);
+    }
+
+    void clear() {
+        Arrays.fill(chaves, VAZIO);
+        Arrays.fill(valores, null);
+        tamanho = 0;
+    }
+
+    @Override
+    protected long chave(int posicao) {
+        return chaves[posicao];
+    }
+
+    @Override
+    protected void mover(int de, int para) {
+        chaves[para] = chaves[de];
+        valores[para] = valores[de];
+    }
+
+    @Override
+    protected void esvaziar(int posicao) {
+        chaves[posicao] = VAZIO;
+        valores[posicao] = null;
+    }
+
+    private void alocar(int novaCapacidade) {
+        capacidade = novaCapacidade;
+        chaves = new long[capacidade];
+        valores = new Object[capacidade];
+        clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void redimensionar() {
+        long[] chavesAntigas = chaves;
+        Object[] valoresAntigos = valores;
+        alocar(capacidade * 2);
+        for (int i = 0; i < chavesAntigas.length; i++)
+            if (chavesAntigas[i] != VAZIO)
+                put(chavesAntigas[i], (V) valoresAntigos[i]);
+    }
+
+}
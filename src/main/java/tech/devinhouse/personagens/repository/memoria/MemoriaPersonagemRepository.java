@@ -0,0 +1,274 @@
+package tech.devinhouse.personagens.repository.memoria;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tech.devinhouse.personagens.model.Personagem;
+import tech.devinhouse.personagens.repository.PersonagemRepositoryBase;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// repositorio em memoria (perfil "memoria"): mapas com chave long primitiva, indices ordenados por data e nome
+// e persistencia assincrona em diario + snapshot, reaplicados na subida
+@Repository
+@Primary
+@Profile("memoria")
+@Transactional(propagation = Propagation.SUPPORTS)  // nao abre transacao JPA so para acessar a memoria; gravacoes sao compensadas no rollback
+@Slf4j
+public class MemoriaPersonagemRepository extends PersonagemRepositoryBase {
+
+    private static final Comparator<Registro> POR_DATA = Comparator
+            .comparing(Registro::dataNascimento).thenComparingLong(Registro::id);
+
+    private static final Comparator<Registro> POR_NOME = Comparator
+            .comparing(Registro::nome).thenComparingLong(Registro::id);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final MapaLong<Registro> porId = new MapaLong<>(1024);
+
+    private final MapaLong<Registro> porCpf = new MapaLong<>(1024);
+
+    private final TreeSet<Registro> porData = new TreeSet<>(POR_DATA);
+
+    private final TreeSet<Registro> porNome = new TreeSet<>(POR_NOME);
+
+    private final DiarioEscrita diario;
+
+    private long proximoId = 1;
+
+    public MemoriaPersonagemRepository(@Value("${personagens.memoria.diretorio:./dados}") Path diretorio) throws IOException {
+        this.diario = new DiarioEscrita(diretorio);
+    }
+
+    @PostConstruct
+    public void iniciar() throws IOException {
+        diario.recuperar(this::indexar, this::desindexar);
+        diario.iniciar();
+        log.info("Repositorio em memoria iniciado com {} personagens", porId.size());
+    }
+
+    @PreDestroy
+    public void encerrar() throws IOException {
+        snapshot();
+        diario.close();
+    }
+
+    // fecha o diario sem snapshot, como em uma queda do processo apos a ultima gravacao
+    void interromper() throws IOException {
+        diario.close();
+    }
+
+    @Scheduled(fixedDelayString = "${personagens.memoria.snapshot-intervalo-ms:60000}",
+            initialDelayString = "${personagens.memoria.snapshot-intervalo-ms:60000}")
+    public void snapshot() {
+        lock.readLock().lock();  // exclui escritores: nada entra na fila entre a copia e o marcador do snapshot
+        try {
+            List<Registro> registros = new ArrayList<>(porId.size());
+            porId.forEachValue(registros::add);
+            diario.snapshot(registros);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // aguarda a persistencia de todas as alteracoes ja aceitas; IOException se a gravacao falhou
+    public void sincronizar() throws InterruptedException, IOException {
+        diario.sincronizar();
+    }
+
+    @Override
+    protected Personagem gravar(Personagem personagem) {
+        lock.writeLock().lock();
+        try {
+            Long id = personagem.getId();
+            Registro anterior = id != null ? porId.get(id) : null;
+            long novoId = anterior != null ? id : proximoId++;
+            Registro registro = Registro.de(novoId, personagem);
+            indexar(registro);
+            diario.gravar(registro);
+            desfazerNoRollback(anterior == null ? () -> remover(novoId) : () -> restaurar(anterior));
+            return registro.paraPersonagem();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected Optional<Personagem> buscar(long id) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(porId.get(id)).map(Registro::paraPersonagem);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected boolean remover(long id) {
+        lock.writeLock().lock();
+        try {
+            Registro anterior = porId.get(id);
+            if (anterior == null)
+                return false;
+            desindexar(id);
+            diario.excluir(id);
+            desfazerNoRollback(() -> restaurar(anterior));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected List<Personagem> todos() {
+        lock.readLock().lock();
+        try {
+            List<Registro> registros = new ArrayList<>(porId.size());
+            porId.forEachValue(registros::add);
+            registros.sort(Comparator.comparingLong(Registro::id));
+            return paraPersonagens(registros);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long count() {
+        lock.readLock().lock();
+        try {
+            return porId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Personagem> findByCpf(Long cpf) {
+        if (cpf == null)
+            return Optional.empty();
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(porCpf.get(cpf)).map(Registro::paraPersonagem);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Personagem> consultarPorDataNascimentoPosteriorA(LocalDate data) {
+        lock.readLock().lock();
+        try {
+            return paraPersonagens(porData.tailSet(limite(data), false));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Personagem> consultarPorDataNascimentoAteh(LocalDate data) {
+        lock.readLock().lock();
+        try {
+            return paraPersonagens(porData.headSet(limite(data), true));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Personagem> consultarPorDataNascimentoEntre(LocalDate inicio, LocalDate fim) {
+        if (inicio.isAfter(fim))
+            return List.of();
+        lock.readLock().lock();
+        try {
+            return paraPersonagens(porData.subSet(limite(inicio), false, limite(fim), true));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // com prefixo literal (ex.: "Fro%") so o trecho correspondente do indice por nome eh percorrido
+    @Override
+    public List<Personagem> consultarPorNomeParcial(String nomeParcial) {
+        Pattern padrao = padraoLike(nomeParcial);
+        String prefixo = prefixoLike(nomeParcial);
+        lock.readLock().lock();
+        try {
+            Collection<Registro> candidatos = prefixo.isEmpty() ? porNome
+                    : porNome.subSet(new Registro(Long.MIN_VALUE, null, prefixo, null, null), true,
+                    new Registro(Long.MIN_VALUE, null, prefixo + Character.MAX_VALUE, null, null), false);
+            return paraPersonagens(candidatos.stream().filter(r -> padrao.matcher(r.nome()).matches()).toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void restaurar(Registro registro) {
+        lock.writeLock().lock();
+        try {
+            indexar(registro);
+            diario.gravar(registro);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void indexar(Registro registro) {
+        Registro anterior = porId.put(registro.id(), registro);
+        if (anterior != null)
+            desindexarSecundarios(anterior);
+        if (registro.cpf() != null)
+            porCpf.put(registro.cpf(), registro);
+        if (registro.dataNascimento() != null)
+            porData.add(registro);
+        if (registro.nome() != null)
+            porNome.add(registro);
+        proximoId = Math.max(proximoId, registro.id() + 1);
+    }
+
+    private boolean desindexar(long id) {
+        Registro anterior = porId.remove(id);
+        if (anterior == null)
+            return false;
+        desindexarSecundarios(anterior);
+        return true;
+    }
+
+    private void desindexarSecundarios(Registro registro) {
+        if (registro.cpf() != null) {
+            Registro atual = porCpf.get(registro.cpf());
+            if (atual != null && atual.id() == registro.id())
+                porCpf.remove(registro.cpf());
+        }
+        if (registro.dataNascimento() != null)
+            porData.remove(registro);
+        if (registro.nome() != null)
+            porNome.remove(registro);
+    }
+
+    // sentinela que fica depois de todos os registros com a mesma data
+    private static Registro limite(LocalDate data) {
+        return new Registro(Long.MAX_VALUE, null, null, data, null);
+    }
+
+    private static List<Personagem> paraPersonagens(Collection<Registro> registros) {
+        List<Personagem> lista = new ArrayList<>(registros.size());
+        for (Registro registro : registros)
+            lista.add(registro.paraPersonagem());
+        return lista;
+    }
+
+}
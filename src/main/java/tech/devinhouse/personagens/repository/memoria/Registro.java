@@ -0,0 +1,52 @@
+package tech.devinhouse.personagens.repository.memoria;
+
+import tech.devinhouse.personagens.model.Personagem;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+
+// copia imutavel do personagem guardada nos indices, com codificacao binaria para o diario e o snapshot
+record Registro(long id, Long cpf, String nome, LocalDate dataNascimento, String serie) {
+
+    static Registro de(long id, Personagem p) {
+        return new Registro(id, p.getCpf(), p.getNome(), p.getDataNascimento(), p.getSerie());
+    }
+
+    Personagem paraPersonagem() {
+        return new Personagem(id, cpf, nome, dataNascimento, serie);
+    }
+
+    void escrever(DataOutput saida) throws IOException {
+        saida.writeLong(id);
+        saida.writeBoolean(cpf != null);
+        if (cpf != null)
+            saida.writeLong(cpf);
+        escreverTexto(saida, nome);
+        saida.writeBoolean(dataNascimento != null);
+        if (dataNascimento != null)
+            saida.writeLong(dataNascimento.toEpochDay());
+        escreverTexto(saida, serie);
+    }
+
+    static Registro ler(DataInput entrada) throws IOException {
+        long id = entrada.readLong();
+        Long cpf = entrada.readBoolean() ? entrada.readLong() : null;
+        String nome = lerTexto(entrada);
+        LocalDate data = entrada.readBoolean() ? LocalDate.ofEpochDay(entrada.readLong()) : null;
+        String serie = lerTexto(entrada);
+        return new Registro(id, cpf, nome, data, serie);
+    }
+
+    private static void escreverTexto(DataOutput saida, String texto) throws IOException {
+        saida.writeBoolean(texto != null);
+        if (texto != null)
+            saida.writeUTF(texto);
+    }
+
+    private static String lerTexto(DataInput entrada) throws IOException {
+        return entrada.readBoolean() ? entrada.readUTF() : null;
+    }
+
+}
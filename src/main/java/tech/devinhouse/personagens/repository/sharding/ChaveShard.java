@@ -0,0 +1,28 @@
+package tech.devinhouse.personagens.repository.sharding;
+
+import tech.devinhouse.personagens.model.Personagem;
+
+// campo usado para escolher o shard na insercao; por serie, cada serie fica inteira em um shard
+public enum ChaveShard {
+
+    SERIE {
+        @Override
+        int hash(Personagem personagem) {
+            return personagem.getSerie() == null ? 0 : personagem.getSerie().hashCode();
+        }
+    },
+    CPF {
+        @Override
+        int hash(Personagem personagem) {
+            return personagem.getCpf() == null ? 0 : Long.hashCode(personagem.getCpf());
+        }
+    };
+
+    abstract int hash(Personagem personagem);
+
+    // espalha os bits antes do modulo, para que hashes proximos nao caiam no mesmo shard
+    int shard(Personagem personagem, int shards) {
+        return Math.floorMod(hash(personagem) * 0x9E3779B9, shards);
+    }
+
+}
@@ -0,0 +1,50 @@
+package tech.devinhouse.personagens.repository.sharding;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Optional;
+
+// cpf -> id de todos os shards em um unico banco; a chave primaria garante a unicidade do cpf entre shards.
+// A entrada eh reservada pendente antes da gravacao no shard e confirmada depois dela
+class IndiceCpf {
+
+    record Entrada(long id, boolean confirmada, long reservadaEm) {
+    }
+
+    private final JdbcTemplate jdbc;
+
+    IndiceCpf(DataSource dataSource) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS personagem_cpf (cpf BIGINT PRIMARY KEY, id BIGINT NOT NULL, "
+                + "confirmada BOOLEAN NOT NULL, reservada_em BIGINT NOT NULL)");
+    }
+
+    Optional<Entrada> buscar(long cpf) {
+        return jdbc.query("SELECT id, confirmada, reservada_em FROM personagem_cpf WHERE cpf = ?",
+                (rs, linha) -> new Entrada(rs.getLong("id"), rs.getBoolean("confirmada"), rs.getLong("reservada_em")), cpf)
+                .stream().findFirst();
+    }
+
+    // lanca DuplicateKeyException se o cpf ja pertence a outro id
+    void reservar(long cpf, long id) {
+        jdbc.update("INSERT INTO personagem_cpf (cpf, id, confirmada, reservada_em) VALUES (?, ?, FALSE, ?)",
+                cpf, id, System.currentTimeMillis());
+    }
+
+    // false se a reserva nao existe mais, ou seja, foi tomada por outra gravacao
+    boolean confirmar(long cpf, long id) {
+        return jdbc.update("UPDATE personagem_cpf SET confirmada = TRUE WHERE cpf = ? AND id = ?", cpf, id) > 0;
+    }
+
+    void liberar(long cpf, long id) {
+        jdbc.update("DELETE FROM personagem_cpf WHERE cpf = ? AND id = ?", cpf, id);
+    }
+
+    // remove a entrada somente se ela continua exatamente como foi lida
+    boolean descartar(long cpf, Entrada entrada) {
+        return jdbc.update("DELETE FROM personagem_cpf WHERE cpf = ? AND id = ? AND confirmada = ? AND reservada_em = ?",
+                cpf, entrada.id(), entrada.confirmada(), entrada.reservadaEm()) > 0;
+    }
+
+}
@@ -0,0 +1,74 @@
+package tech.devinhouse.personagens.repository.sharding;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import tech.devinhouse.personagens.model.Personagem;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+// uma particao da tabela de personagens em um datasource proprio; os ids gerados aqui terminam no indice do shard
+class Shard {
+
+    private static final String COLUNAS = "id, cpf, nome, data_nascimento, serie";
+
+    private static final RowMapper<Personagem> MAPEADOR = (rs, linha) -> new Personagem(
+            rs.getLong("id"), rs.getObject("cpf", Long.class), rs.getString("nome"),
+            rs.getObject("data_nascimento", LocalDate.class), rs.getString("serie"));
+
+    private final int indice;
+
+    private final int total;
+
+    private final JdbcTemplate jdbc;
+
+    Shard(int indice, int total, DataSource dataSource) {
+        this.indice = indice;
+        this.total = total;
+        this.jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS personagem (id BIGINT PRIMARY KEY, cpf BIGINT, nome VARCHAR(255), "
+                + "data_nascimento DATE, serie VARCHAR(255))");
+        jdbc.execute("CREATE INDEX IF NOT EXISTS personagem_data_nascimento ON personagem (data_nascimento)");
+        jdbc.execute("CREATE SEQUENCE IF NOT EXISTS personagem_seq");
+    }
+
+    int getIndice() {
+        return indice;
+    }
+
+    long proximoId() {
+        return jdbc.queryForObject("SELECT NEXT VALUE FOR personagem_seq", Long.class) * total + indice;
+    }
+
+    void inserir(Personagem p) {
+        jdbc.update("INSERT INTO personagem (" + COLUNAS + ") VALUES (?, ?, ?, ?, ?)",
+                p.getId(), p.getCpf(), p.getNome(), p.getDataNascimento(), p.getSerie());
+    }
+
+    void atualizar(Personagem p) {
+        jdbc.update("UPDATE personagem SET cpf = ?, nome = ?, data_nascimento = ?, serie = ? WHERE id = ?",
+                p.getCpf(), p.getNome(), p.getDataNascimento(), p.getSerie(), p.getId());
+    }
+
+    Optional<Personagem> buscar(long id) {
+        return jdbc.query("SELECT " + COLUNAS + " FROM personagem WHERE id = ?", MAPEADOR, id).stream().findFirst();
+    }
+
+    boolean remover(long id) {
+        return jdbc.update("DELETE FROM personagem WHERE id = ?", id) > 0;
+    }
+
+    long contar() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM personagem", Long.class);
+    }
+
+    // condicao e ordem montadas pelo repositorio, nunca com texto vindo da requisicao
+    List<Personagem> consultar(String condicao, String ordem, long limite, Object... parametros) {
+        String sql = "SELECT " + COLUNAS + " FROM personagem" + (condicao == null ? "" : " WHERE " + condicao)
+                + " ORDER BY " + ordem + (limite < Long.MAX_VALUE ? " LIMIT " + limite : "");
+        return jdbc.query(sql, MAPEADOR, parametros);
+    }
+
+}
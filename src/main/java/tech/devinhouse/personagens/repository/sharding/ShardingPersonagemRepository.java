@@ -0,0 +1,332 @@
+package tech.devinhouse.personagens.repository.sharding;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tech.devinhouse.personagens.model.Personagem;
+import tech.devinhouse.personagens.repository.PersonagemRepositoryBase;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+// personagens particionados em N bancos (perfil "sharding"). O shard eh escolhido na insercao pela chave
+// configurada e fica gravado no id (id % N), entao buscas por id vao a um shard so; as consultas de lista
+// rodam em paralelo em todos os shards e os resultados, ja ordenados em cada um, sao intercalados
+@Repository
+@Primary
+@Profile("sharding")
+@Transactional(propagation = Propagation.SUPPORTS)  // os shards usam autocommit, fora da transacao JPA: gravacoes sao compensadas no rollback
+@Slf4j
+public class ShardingPersonagemRepository extends PersonagemRepositoryBase {
+
+    private static final Map<String, String> COLUNAS = Map.of(
+            "id", "id", "cpf", "cpf", "nome", "nome", "dataNascimento", "data_nascimento", "serie", "serie");
+
+    private static final Comparator<Personagem> POR_ID = Comparator.comparing(Personagem::getId);
+
+    private final List<Shard> shards = new ArrayList<>();
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    private final IndiceCpf indiceCpf;
+
+    private final ChaveShard chave;
+
+    private final ExecutorService executor;
+
+    private final Duration expiracaoReserva;
+
+    public ShardingPersonagemRepository(@Value("${personagens.sharding.shards:4}") int quantidade,
+                                        @Value("${personagens.sharding.url:jdbc:h2:mem:personagens-shard-{n};DB_CLOSE_ON_EXIT=FALSE}") String url,
+                                        @Value("${personagens.sharding.indice-url:jdbc:h2:mem:personagens-indice-cpf;DB_CLOSE_ON_EXIT=FALSE}") String urlIndice,
+                                        @Value("${personagens.sharding.chave:serie}") ChaveShard chave,
+                                        @Value("${personagens.sharding.conexoes-por-shard:4}") int conexoes,
+                                        @Value("${personagens.sharding.expiracao-reserva:PT30S}") Duration expiracaoReserva) {
+        try {
+            for (int i = 0; i < quantidade; i++)
+                shards.add(new Shard(i, quantidade, pool("shard-" + i, url.replace("{n}", String.valueOf(i)), conexoes)));
+            this.indiceCpf = new IndiceCpf(pool("shard-indice-cpf", urlIndice, conexoes));
+        } catch (RuntimeException e) {
+            pools.forEach(HikariDataSource::close);
+            throw e;
+        }
+        this.chave = chave;
+        this.expiracaoReserva = expiracaoReserva;
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(quantidade, tarefa -> {
+            Thread thread = new Thread(tarefa, "shard-consulta-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Personagens particionados em {} shards por {}", quantidade, chave);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdown();
+        pools.forEach(HikariDataSource::close);
+    }
+
+    @Override
+    protected Personagem gravar(Personagem personagem) {
+        Personagem gravado = copiar(personagem);
+        Optional<Personagem> anterior = personagem.getId() == null ? Optional.empty() : buscar(personagem.getId());
+        if (anterior.isEmpty()) {
+            Shard shard = shards.get(chave.shard(personagem, shards.size()));
+            gravado.setId(shard.proximoId());
+            inserir(shard, gravado);
+            desfazerNoRollback(() -> excluir(gravado.getId()));
+        } else {
+            atualizar(gravado, anterior.get());
+            desfazerNoRollback(() -> atualizar(anterior.get(), gravado));
+        }
+        return gravado;
+    }
+
+    @Override
+    protected Optional<Personagem> buscar(long id) {
+        return shard(id).buscar(id);
+    }
+
+    @Override
+    protected boolean remover(long id) {
+        Optional<Personagem> removido = excluir(id);
+        removido.ifPresent(anterior -> desfazerNoRollback(() -> inserir(shard(id), anterior)));
+        return removido.isPresent();
+    }
+
+    @Override
+    protected List<Personagem> todos() {
+        return consultar(null);
+    }
+
+    // uma entrada do indice cujo registro nao existe mais ou mudou de cpf (queda entre as duas gravacoes) eh ignorada
+    @Override
+    public Optional<Personagem> findByCpf(Long cpf) {
+        if (cpf == null)
+            return Optional.empty();
+        return indiceCpf.buscar(cpf).flatMap(entrada -> buscar(entrada.id())).filter(p -> cpf.equals(p.getCpf()));
+    }
+
+    @Override
+    public long count() {
+        return espalhar(Shard::contar).stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public List<Personagem> consultarPorDataNascimentoPosteriorA(LocalDate data) {
+        return consultar("data_nascimento > ?", data);
+    }
+
+    @Override
+    public List<Personagem> consultarPorDataNascimentoAteh(LocalDate data) {
+        return consultar("data_nascimento <= ?", data);
+    }
+
+    @Override
+    public List<Personagem> consultarPorDataNascimentoEntre(LocalDate inicio, LocalDate fim) {
+        return consultar("data_nascimento > ? AND data_nascimento <= ?", inicio, fim);
+    }
+
+    // ESCAPE '' para seguir o LIKE do JPQL, que nao tem caractere de escape
+    @Override
+    public List<Personagem> consultarPorNomeParcial(String nomeParcial) {
+        return consultar("nome LIKE ? ESCAPE ''", nomeParcial);
+    }
+
+    @Override
+    public List<Personagem> findAll(Sort sort) {
+        return sort.isSorted() ? intercalar(espalhar(s -> s.consultar(null, ordem(sort), Long.MAX_VALUE)), ordenacao(sort))
+                : todos();
+    }
+
+    // cada shard devolve somente as primeiras offset + tamanho linhas na ordem pedida
+    @Override
+    public Page<Personagem> findAll(Pageable pageable) {
+        if (pageable.isUnpaged())
+            return new PageImpl<>(findAll(pageable.getSort()));
+        Sort sort = pageable.getSort();
+        long limite = pageable.getOffset() + pageable.getPageSize();
+        List<Personagem> lista = intercalar(espalhar(s -> s.consultar(null, ordem(sort), limite)),
+                sort.isSorted() ? ordenacao(sort) : POR_ID);
+        int inicio = (int) Math.min(pageable.getOffset(), lista.size());
+        int fim = Math.min(inicio + pageable.getPageSize(), lista.size());
+        return new PageImpl<>(lista.subList(inicio, fim), pageable, count());
+    }
+
+    // o cpf eh reservado no indice antes de gravar no shard, liberado se a gravacao falhar e confirmado depois;
+    // se a reserva foi tomada nesse meio tempo (por ter expirado), a gravacao no shard eh desfeita
+    private void inserir(Shard shard, Personagem personagem) {
+        reservarCpf(personagem);
+        try {
+            shard.inserir(personagem);
+        } catch (RuntimeException e) {
+            liberarCpf(personagem);
+            throw e;
+        }
+        if (!confirmarCpf(personagem)) {
+            shard.remover(personagem.getId());
+            throw cpfDuplicado(personagem);
+        }
+    }
+
+    private void atualizar(Personagem personagem, Personagem anterior) {
+        boolean trocouCpf = !Objects.equals(anterior.getCpf(), personagem.getCpf());
+        if (trocouCpf)
+            reservarCpf(personagem);
+        try {
+            shard(personagem.getId()).atualizar(personagem);
+        } catch (RuntimeException e) {
+            if (trocouCpf)
+                liberarCpf(personagem);
+            throw e;
+        }
+        if (trocouCpf) {
+            if (!confirmarCpf(personagem)) {
+                shard(personagem.getId()).atualizar(anterior);
+                throw cpfDuplicado(personagem);
+            }
+            liberarCpf(anterior);
+        }
+    }
+
+    private Optional<Personagem> excluir(long id) {
+        Optional<Personagem> anterior = buscar(id);
+        if (anterior.isEmpty() || !shard(id).remover(id))
+            return Optional.empty();
+        liberarCpf(anterior.get());
+        return anterior;
+    }
+
+    private List<Personagem> consultar(String condicao, Object... parametros) {
+        return intercalar(espalhar(s -> s.consultar(condicao, "id", Long.MAX_VALUE, parametros)), POR_ID);
+    }
+
+    // executa a mesma operacao em todos os shards em paralelo; so pode ser chamado fora do pool, porque
+    // uma tarefa do pool bloqueada esperando outras na mesma fila pode travar todas as threads
+    private <T> List<T> espalhar(Function<Shard, T> operacao) {
+        List<CompletableFuture<T>> futuros = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> operacao.apply(shard), executor))
+                .toList();
+        return futuros.stream().map(CompletableFuture::join).toList();
+    }
+
+    // intercala listas ja ordenadas pelo comparador
+    private static List<Personagem> intercalar(List<List<Personagem>> listas, Comparator<Personagem> comparador) {
+        record Cursor(List<Personagem> lista, int posicao) {
+            Personagem atual() {
+                return lista.get(posicao);
+            }
+        }
+        PriorityQueue<Cursor> fila = new PriorityQueue<>(Math.max(1, listas.size()), Comparator.comparing(Cursor::atual, comparador));
+        int tamanho = 0;
+        for (List<Personagem> lista : listas) {
+            tamanho += lista.size();
+            if (!lista.isEmpty())
+                fila.add(new Cursor(lista, 0));
+        }
+        List<Personagem> resultado = new ArrayList<>(tamanho);
+        while (!fila.isEmpty()) {
+            Cursor cursor = fila.poll();
+            resultado.add(cursor.atual());
+            if (cursor.posicao() + 1 < cursor.lista().size())
+                fila.add(new Cursor(cursor.lista(), cursor.posicao() + 1));
+        }
+        return resultado;
+    }
+
+    // o id desempata, como no ORDER BY dos shards, para que a intercalacao siga a mesma ordem total
+    private static Comparator<Personagem> ordenacao(Sort sort) {
+        return comparador(sort).thenComparing(POR_ID);
+    }
+
+    // mesma ordem do comparador da base: nulos primeiro, ou por ultimo em ordem decrescente ou com NULLS_LAST
+    private static String ordem(Sort sort) {
+        StringBuilder sql = new StringBuilder();
+        for (Sort.Order ordem : sort) {
+            String coluna = COLUNAS.get(ordem.getProperty());
+            if (coluna == null)
+                throw new IllegalArgumentException("Propriedade de ordenacao invalida: " + ordem.getProperty());
+            boolean nulosPrimeiro = ordem.getNullHandling() == Sort.NullHandling.NULLS_LAST ? !ordem.isAscending() : ordem.isAscending();
+            sql.append(coluna).append(ordem.isAscending() ? " ASC" : " DESC")
+                    .append(nulosPrimeiro ? " NULLS FIRST" : " NULLS LAST").append(", ");
+        }
+        return sql.append("id").toString();
+    }
+
+    private Shard shard(long id) {
+        return shards.get((int) Math.floorMod(id, (long) shards.size()));
+    }
+
+    private void reservarCpf(Personagem personagem) {
+        if (personagem.getCpf() == null)
+            return;
+        try {
+            indiceCpf.reservar(personagem.getCpf(), personagem.getId());
+        } catch (DuplicateKeyException e) {
+            Optional<IndiceCpf.Entrada> entrada = indiceCpf.buscar(personagem.getCpf());
+            if (entrada.isEmpty() || !abandonada(personagem.getCpf(), entrada.get())
+                    || !indiceCpf.descartar(personagem.getCpf(), entrada.get()))
+                throw e;
+            log.warn("Entrada do cpf {} no indice aponta para o id {} que nao o possui mais, substituindo",
+                    personagem.getCpf(), entrada.get().id());
+            indiceCpf.reservar(personagem.getCpf(), personagem.getId());
+        }
+    }
+
+    // uma reserva pendente pode ser de uma gravacao ainda em andamento no shard, entao so eh considerada
+    // abandonada depois de expirar; confirmada ou expirada, o registro do dono ainda precisa nao ter mais o cpf
+    private boolean abandonada(long cpf, IndiceCpf.Entrada entrada) {
+        boolean expirada = entrada.confirmada()
+                || System.currentTimeMillis() - entrada.reservadaEm() >= expiracaoReserva.toMillis();
+        return expirada && buscar(entrada.id()).map(dono -> !Objects.equals(cpf, dono.getCpf())).orElse(true);
+    }
+
+    private boolean confirmarCpf(Personagem personagem) {
+        return personagem.getCpf() == null || indiceCpf.confirmar(personagem.getCpf(), personagem.getId());
+    }
+
+    private static DuplicateKeyException cpfDuplicado(Personagem personagem) {
+        return new DuplicateKeyException("Cpf " + personagem.getCpf() + " reservado por outro personagem");
+    }
+
+    private void liberarCpf(Personagem personagem) {
+        if (personagem.getCpf() != null)
+            indiceCpf.liberar(personagem.getCpf(), personagem.getId());
+    }
+
+    private HikariDataSource pool(String nome, String url, int conexoes) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(nome);
+        config.setJdbcUrl(url);
+        config.setMaximumPoolSize(conexoes);
+        HikariDataSource pool = new HikariDataSource(config);
+        pools.add(pool);
+        return pool;
+    }
+
+}
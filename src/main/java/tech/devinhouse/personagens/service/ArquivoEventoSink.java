@@ -0,0 +1,46 @@
+package tech.devinhouse.personagens.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import tech.devinhouse.personagens.dto.PersonagemEventoResponse;
+import tech.devinhouse.personagens.model.PersonagemEvento;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// grava os eventos em um arquivo JSON lines, substituto simples de um broker
+@Component
+@ConditionalOnProperty("personagens.eventos.arquivo")
+@Slf4j
+public class ArquivoEventoSink implements EventoSink {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ModelMapper modelMapper;
+
+    @Value("${personagens.eventos.arquivo}")
+    private Path arquivo;
+
+    @Override
+    public void publicar(PersonagemEvento evento) {
+        try {
+            String linha = objectMapper.writeValueAsString(modelMapper.map(evento, PersonagemEventoResponse.class));
+            Files.writeString(arquivo, linha + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,29 @@
+package tech.devinhouse.personagens.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class EventoRelay {
+
+    @Autowired
+    private PersonagemEventoService service;
+
+    @Scheduled(fixedDelayString = "${personagens.eventos.relay-intervalo-ms:1000}")
+    public void executar() {
+        try {
+            int publicados;
+            do {
+                publicados = service.publicarPendentes();
+                if (publicados > 0)
+                    log.debug("Relay fez {} entregas aos sinks", publicados);
+            } while (publicados > 0);
+        } catch (RuntimeException e) {
+            log.error("Falha ao publicar eventos, nova tentativa no proximo ciclo: {}", e.getMessage());
+        }
+    }
+
+}
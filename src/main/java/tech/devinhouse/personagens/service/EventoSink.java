@@ -0,0 +1,16 @@
+package tech.devinhouse.personagens.service;
+
+import org.springframework.util.ClassUtils;
+import tech.devinhouse.personagens.model.PersonagemEvento;
+
+// destino dos eventos publicados pelo relay do outbox
+public interface EventoSink {
+
+    void publicar(PersonagemEvento evento);
+
+    // chave do cursor do sink; precisa ser estavel entre reinicios
+    default String nome() {
+        return ClassUtils.getUserClass(this).getSimpleName();
+    }
+
+}
@@ -0,0 +1,91 @@
+package tech.devinhouse.personagens.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.devinhouse.personagens.dto.FaixaIdadeResponse;
+import tech.devinhouse.personagens.model.Personagem;
+import tech.devinhouse.personagens.model.PersonagemEvento;
+import tech.devinhouse.personagens.model.TipoEvento;
+import tech.devinhouse.personagens.repository.PersonagemRepository;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// indice ordenado de datas de nascimento em memoria, carregado na subida e atualizado pelos eventos do outbox
+@Component
+@Slf4j
+public class IndiceDataNascimento implements EventoSink, SmartInitializingSingleton {
+
+    @Autowired
+    private PersonagemRepository repo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ConcurrentSkipListMap<LocalDate, Integer> quantidadePorData = new ConcurrentSkipListMap<>();
+
+    private final Map<Long, LocalDate> dataPorId = new ConcurrentHashMap<>();
+
+    // carrega antes de o agendador e o servidor web subirem: com o relay parado nenhum evento se intercala com a
+    // carga, e os pendentes sao reaplicados depois, em ordem, sobre ela
+    @Override
+    public void afterSingletonsInstantiated() {
+        carregar();
+    }
+
+    // sob o mesmo lock dos eventos, e em transacao de escrita para ler no primario: o cursor deste sink pode
+    // estar a frente da replica, e o que faltasse nela nao seria reaplicado
+    public synchronized void carregar() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                repo.findAll().forEach(p -> atualizar(p.getId(), p.getDataNascimento())));
+        log.info("Indice de datas de nascimento carregado com {} personagens", dataPorId.size());
+    }
+
+    @Override
+    public void publicar(PersonagemEvento evento) {
+        if (evento.getTipo() == TipoEvento.EXCLUSAO)
+            remover(evento.getPersonagemId());
+        else
+            atualizar(evento.getPersonagemId(), evento.getDataNascimento());
+    }
+
+    // idempotente: reaplicar o mesmo evento ou um registro ja carregado nao altera as contagens
+    public synchronized void atualizar(Long id, LocalDate dataNascimento) {
+        LocalDate anterior = dataNascimento == null ? dataPorId.remove(id) : dataPorId.put(id, dataNascimento);
+        if (anterior != null)
+            quantidadePorData.computeIfPresent(anterior, (data, qtd) -> qtd > 1 ? qtd - 1 : null);
+        if (dataNascimento != null)
+            quantidadePorData.merge(dataNascimento, 1, Integer::sum);
+    }
+
+    public synchronized void remover(Long id) {
+        atualizar(id, null);
+    }
+
+    // uma unica passada pelo indice, da data mais recente para a mais antiga
+    public List<FaixaIdadeResponse> histograma(int tamanhoFaixa, LocalDate hoje) {
+        List<FaixaIdadeResponse> faixas = new ArrayList<>();
+        int faixa = 0;
+        int quantidade = 0;
+        LocalDate limite = hoje.minusYears(tamanhoFaixa);  // nascidos depois desta data estao na faixa atual
+        for (Map.Entry<LocalDate, Integer> entrada : quantidadePorData.headMap(hoje, true).descendingMap().entrySet()) {
+            while (!entrada.getKey().isAfter(limite)) {
+                faixas.add(new FaixaIdadeResponse(faixa * tamanhoFaixa, (faixa + 1) * tamanhoFaixa - 1, quantidade));
+                faixa++;
+                quantidade = 0;
+                limite = hoje.minusYears((long) (faixa + 1) * tamanhoFaixa);
+            }
+            quantidade += entrada.getValue();
+        }
+        if (quantidade > 0)
+            faixas.add(new FaixaIdadeResponse(faixa * tamanhoFaixa, (faixa + 1) * tamanhoFaixa - 1, quantidade));
+        return faixas;
+    }
+
+}
@@ -0,0 +1,16 @@
+package tech.devinhouse.personagens.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import tech.devinhouse.personagens.model.PersonagemEvento;
+
+@Component
+@Slf4j
+public class LogEventoSink implements EventoSink {
+
+    @Override
+    public void publicar(PersonagemEvento evento) {
+        log.debug("Evento publicado: {}", evento);
+    }
+
+}
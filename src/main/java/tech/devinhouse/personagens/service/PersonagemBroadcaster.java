@@ -0,0 +1,203 @@
+package tech.devinhouse.personagens.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tech.devinhouse.personagens.dto.PersonagemEventoResponse;
+import tech.devinhouse.personagens.model.PersonagemEvento;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+// distribui os eventos do outbox para os clientes SSE: cada evento eh serializado uma unica vez
+@Component
+@Slf4j
+public class PersonagemBroadcaster implements EventoSink {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ModelMapper modelMapper;
+
+    @Value("${personagens.sse.buffer:256}")
+    private int tamanhoBuffer;
+
+    @Value("${personagens.sse.timeout-ms:1800000}")
+    private long timeout;
+
+    private final Set<Assinante> assinantes = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService envio;
+
+    public PersonagemBroadcaster(@Value("${personagens.sse.threads:2}") int threads) {
+        this.envio = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "sse-envio");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // registra o cliente antes de ler o snapshot para nao perder alteracoes feitas entre os dois passos
+    public SseEmitter assinar(Supplier<?> snapshot) {
+        Assinante assinante = registrar();
+        try {
+            assinante.emitter.send(SseEmitter.event().name("snapshot").data(serializar(snapshot.get()), MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            assinantes.remove(assinante);
+            assinante.emitter.completeWithError(e);
+            return assinante.emitter;
+        }
+        return ativar(assinante);
+    }
+
+    // retoma de um id do outbox (desde ou Last-Event-ID) em vez do snapshot: reenvia os eventos posteriores a ele
+    // e segue com os ao vivo, descartando os que a leitura ja cobriu
+    public SseEmitter retomar(long desde, LongFunction<List<PersonagemEvento>> eventosDesde) {
+        Assinante assinante = registrar();
+        long ultimo = desde;
+        try {
+            List<PersonagemEvento> pagina;
+            while (!(pagina = eventosDesde.apply(ultimo)).isEmpty()) {
+                for (PersonagemEvento evento : pagina) {
+                    assinante.emitter.send(quadro(evento).evento());
+                    ultimo = evento.getId();
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            remover(assinante);
+            return assinante.emitter;
+        }
+        assinante.ultimoEnviado = ultimo;
+        return ativar(assinante);
+    }
+
+    @Override
+    public void publicar(PersonagemEvento evento) {
+        if (assinantes.isEmpty())
+            return;
+        Quadro quadro = quadro(evento);
+        for (Assinante assinante : assinantes) {
+            if (!assinante.fila.offer(quadro)) {
+                log.warn("Assinante SSE lento removido, buffer de {} eventos cheio", tamanhoBuffer);
+                remover(assinante);
+                continue;
+            }
+            agendar(assinante);
+        }
+    }
+
+    public int getQuantidadeAssinantes() {
+        return assinantes.size();
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        assinantes.forEach(a -> a.emitter.complete());
+        envio.shutdownNow();
+    }
+
+    SseEmitter criarEmitter() {
+        return new SseEmitter(timeout);
+    }
+
+    private Assinante registrar() {
+        SseEmitter emitter = criarEmitter();
+        Assinante assinante = new Assinante(emitter, new ArrayBlockingQueue<>(tamanhoBuffer));
+        emitter.onCompletion(() -> assinantes.remove(assinante));
+        emitter.onTimeout(() -> assinantes.remove(assinante));
+        emitter.onError(e -> assinantes.remove(assinante));
+        assinantes.add(assinante);
+        return assinante;
+    }
+
+    private SseEmitter ativar(Assinante assinante) {
+        assinante.ativo = true;
+        agendar(assinante);
+        log.debug("Novo assinante SSE, total {}", assinantes.size());
+        return assinante.emitter;
+    }
+
+    private Quadro quadro(PersonagemEvento evento) {
+        String json = serializar(modelMapper.map(evento, PersonagemEventoResponse.class));
+        return new Quadro(evento.getId(), evento.getTipo().name().toLowerCase(), json);
+    }
+
+    private void agendar(Assinante assinante) {
+        if (assinante.ativo && !assinante.fila.isEmpty() && assinante.agendado.compareAndSet(false, true))
+            envio.execute(() -> drenar(assinante));
+    }
+
+    private void drenar(Assinante assinante) {
+        try {
+            Quadro quadro;
+            while ((quadro = assinante.fila.poll()) != null) {
+                if (quadro.id() > assinante.ultimoEnviado)
+                    assinante.emitter.send(quadro.evento());
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Falha no envio SSE, assinante removido: {}", e.getMessage());
+            remover(assinante);
+        } finally {
+            assinante.agendado.set(false);
+        }
+        agendar(assinante);  // eventos que chegaram enquanto a flag ainda estava ligada
+    }
+
+    private void remover(Assinante assinante) {
+        if (assinantes.remove(assinante)) {
+            assinante.fila.clear();
+            assinante.emitter.complete();
+        }
+    }
+
+    private String serializar(Object valor) {
+        try {
+            return objectMapper.writeValueAsString(valor);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class Assinante {
+
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<Quadro> fila;
+
+        private final AtomicBoolean agendado = new AtomicBoolean();
+
+        private volatile boolean ativo;
+
+        private volatile long ultimoEnviado;  // na retomada, o ultimo evento ja enviado pela leitura do outbox
+
+        private Assinante(SseEmitter emitter, BlockingQueue<Quadro> fila) {
+            this.emitter = emitter;
+            this.fila = fila;
+        }
+
+    }
+
+    // evento ja serializado, compartilhado entre todos os assinantes; cada envio monta so o quadro SSE em volta
+    private record Quadro(long id, String nome, String json) {
+
+        private SseEmitter.SseEventBuilder evento() {
+            return SseEmitter.event().id(String.valueOf(id)).name(nome).data(json, MediaType.APPLICATION_JSON);
+        }
+
+    }
+
+}
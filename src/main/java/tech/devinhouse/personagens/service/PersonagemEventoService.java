@@ -0,0 +1,105 @@
+package tech.devinhouse.personagens.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tech.devinhouse.personagens.model.CursorSink;
+import tech.devinhouse.personagens.model.Personagem;
+import tech.devinhouse.personagens.model.PersonagemEvento;
+import tech.devinhouse.personagens.model.TipoEvento;
+import tech.devinhouse.personagens.repository.CursorSinkRepository;
+import tech.devinhouse.personagens.repository.PersonagemEventoRepository;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+@Service
+@Slf4j
+public class PersonagemEventoService {
+
+    @Autowired
+    private PersonagemEventoRepository repo;
+
+    @Autowired
+    private CursorSinkRepository cursorRepo;
+
+    @Autowired
+    private List<EventoSink> sinks;
+
+    @Value("${personagens.eventos.janela-lacuna-ms:10000}")
+    private long janelaLacuna;
+
+    // deve ser chamado dentro da transacao que alterou o personagem (outbox)
+    public PersonagemEvento registrar(TipoEvento tipo, Personagem personagem) {
+        PersonagemEvento evento = repo.save(new PersonagemEvento(tipo, personagem));
+        log.trace("Registrado evento {} do personagem {}", evento.getId(), personagem.getId());
+        return evento;
+    }
+
+    @Transactional(readOnly = true)
+    public List<PersonagemEvento> consultarDesde(Long desde) {
+        return semLacunas(repo.findTop100ByIdGreaterThanOrderByIdAsc(desde), desde);
+    }
+
+    // para retomar o stream: le no primario para ver tudo o que o relay ja pode ter entregue aos assinantes
+    @Transactional
+    public List<PersonagemEvento> consultarDesdeNoPrimario(Long desde) {
+        return semLacunas(repo.findTop100ByIdGreaterThanOrderByIdAsc(desde), desde);
+    }
+
+    // entrega ao menos uma vez, com um cursor por sink: a falha de um sink so atrasa ele mesmo, sem reenviar
+    // aos outros o que eles ja receberam; o evento eh marcado como publicado quando todos os cursores passam dele.
+    // Transacao de escrita para que as leituras de cursores e eventos fiquem no primario, sem atraso da replica
+    @Transactional
+    public int publicarPendentes() {
+        int entregues = 0;
+        long menorCursor = Long.MAX_VALUE;
+        for (EventoSink sink : sinks) {
+            CursorSink cursor = cursorRepo.findById(sink.nome())
+                    .orElseGet(() -> new CursorSink(sink.nome(), repo.ultimoPublicado()));
+            entregues += entregar(sink, cursor);
+            menorCursor = Math.min(menorCursor, cursor.getUltimoEvento());
+        }
+        if (entregues > 0)
+            repo.marcarPublicadosAte(menorCursor);
+        return entregues;
+    }
+
+    private int entregar(EventoSink sink, CursorSink cursor) {
+        int entregues = 0;
+        try {
+            List<PersonagemEvento> eventos = repo.findTop100ByIdGreaterThanOrderByIdAsc(cursor.getUltimoEvento());
+            for (PersonagemEvento evento : semLacunas(eventos, cursor.getUltimoEvento())) {
+                sink.publicar(evento);
+                cursor.setUltimoEvento(evento.getId());
+                entregues++;
+            }
+        } catch (RuntimeException e) {
+            log.error("Falha ao publicar no sink {}, nova tentativa apos o evento {}: {}",
+                    sink.nome(), cursor.getUltimoEvento(), e.getMessage());
+        }
+        if (entregues > 0)
+            cursorRepo.save(cursor);
+        return entregues;
+    }
+
+    // ids IDENTITY sao confirmados fora de ordem: uma lacuna pode ser uma transacao ainda aberta, cujo evento
+    // ficaria para tras se o cursor passasse dela. So libera o trecho continuo; passada a janela, a lacuna eh
+    // tratada como rollback (que tambem consome ids)
+    private List<PersonagemEvento> semLacunas(List<PersonagemEvento> eventos, long desde) {
+        LocalDateTime limite = LocalDateTime.now().minus(janelaLacuna, ChronoUnit.MILLIS);
+        long anterior = desde;
+        int continuos = 0;
+        for (PersonagemEvento evento : eventos) {
+            if (evento.getId() != anterior + 1 && evento.getDataHora().isAfter(limite))
+                break;
+            anterior = evento.getId();
+            continuos++;
+        }
+        return eventos.subList(0, continuos);
+    }
+
+}
@@ -3,23 +3,30 @@ package tech.devinhouse.personagens.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import tech.devinhouse.personagens.exception.RegistroExistenteException;
 import tech.devinhouse.personagens.exception.RegistroNaoEncontradoException;
 import tech.devinhouse.personagens.model.Personagem;
+import tech.devinhouse.personagens.model.TipoEvento;
 import tech.devinhouse.personagens.repository.PersonagemRepository;
 
-import java.time.Duration;
 import java.time.LocalDate;
+import java.time.Period;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 @Slf4j
+@Transactional(readOnly = true)  // consultas sem flush e sem dirty checking; escritas sobrescrevem no metodo
 public class PersonagemService {
 
     @Autowired
     private PersonagemRepository repo;
 
+    @Autowired
+    private PersonagemEventoService eventoService;
+
+    @Transactional
     public Personagem inserir(Personagem personagem) {
         boolean isCPFjaCadastrado = repo.existsPersonagemByCpf(personagem.getCpf());
         if (isCPFjaCadastrado) {
@@ -27,6 +34,7 @@ public class PersonagemService {
             throw new RegistroExistenteException();
         }
         personagem = repo.save(personagem);
+        eventoService.registrar(TipoEvento.INSERCAO, personagem);
         log.debug("Criado registro com id {}", personagem.getId());
         return personagem;
     }
@@ -47,12 +55,14 @@ public class PersonagemService {
         return personagemOpt.orElseThrow(RegistroNaoEncontradoException::new);
     }
 
+    @Transactional  // lote tudo ou nada: um CPF repetido desfaz as insercoes anteriores, como a validacao do lote
     public List<Personagem> inserir(List<Personagem> personagens) {
         return personagens.stream()
                 .map(p -> inserir(p))
                 .toList();
     }
 
+    @Transactional
     public Personagem alterar(Personagem alterado) {
         var personagem = repo.findById(alterado.getId())
                 .orElseThrow(RegistroNaoEncontradoException::new);
@@ -62,14 +72,17 @@ public class PersonagemService {
         personagem.setSerie(alterado.getSerie());
         log.debug("Dados alterados: {}", personagem);
         personagem = repo.save(personagem);
+        eventoService.registrar(TipoEvento.ALTERACAO, personagem);
         return personagem;
     }
 
+    @Transactional
     public void excluir(Long id) {
         var personagem = repo.findById(id)
                 .orElseThrow(RegistroNaoEncontradoException::new);
         log.debug("Registro excluído: {}", personagem);
         repo.delete(personagem);
+        eventoService.registrar(TipoEvento.EXCLUSAO, personagem);
     }
 
     public String consultarNome(Long id) {
@@ -79,8 +92,18 @@ public class PersonagemService {
 
     public Integer consultarIdade(Long id) {
         Personagem personagem = this.consultar(id);
-        int idade = (int) Duration.between(personagem.getDataNascimento().atStartOfDay(), LocalDate.now().atStartOfDay()).toDays() / 365;
-        return idade;
+        return Period.between(personagem.getDataNascimento(), LocalDate.now()).getYears();
+    }
+
+    // idade >= min equivale a nascer ate hoje - min anos; idade <= max equivale a nascer depois de hoje - (max + 1) anos
+    public List<Personagem> consultarPorIdade(Integer idadeMin, Integer idadeMax) {
+        LocalDate hoje = LocalDate.now();
+        if (idadeMax == null)
+            return repo.consultarPorDataNascimentoAteh(hoje.minusYears(idadeMin));
+        LocalDate inicio = hoje.minusYears(idadeMax + 1L);
+        if (idadeMin == null)
+            return repo.consultarPorDataNascimentoPosteriorA(inicio);
+        return repo.consultarPorDataNascimentoEntre(inicio, hoje.minusYears(idadeMin));
     }
 
 }
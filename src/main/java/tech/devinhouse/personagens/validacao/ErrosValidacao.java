@@ -0,0 +1,54 @@
+package tech.devinhouse.personagens.validacao;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// erros guardados em vetores paralelos (linha, regra); o mapa so eh montado para a resposta
+public class ErrosValidacao {
+
+    private static final Regra[] REGRAS = Regra.values();
+
+    private int[] linhas = new int[8];
+
+    private byte[] regras = new byte[8];
+
+    private int quantidade;
+
+    public void adicionar(int linha, Regra regra) {
+        if (quantidade == linhas.length) {
+            linhas = Arrays.copyOf(linhas, quantidade * 2);
+            regras = Arrays.copyOf(regras, quantidade * 2);
+        }
+        linhas[quantidade] = linha;
+        regras[quantidade] = (byte) regra.ordinal();
+        quantidade++;
+    }
+
+    public boolean isEmpty() {
+        return quantidade == 0;
+    }
+
+    public int getQuantidade() {
+        return quantidade;
+    }
+
+    public int getLinha(int i) {
+        return linhas[i];
+    }
+
+    public Regra getRegra(int i) {
+        return REGRAS[regras[i]];
+    }
+
+    // mesmo formato campo -> mensagem da validacao de um unico registro, agrupado pelo indice da linha
+    public Map<Integer, Map<String, String>> porLinha() {
+        Map<Integer, Map<String, String>> retorno = new LinkedHashMap<>();
+        for (int i = 0; i < quantidade; i++) {
+            Regra regra = getRegra(i);
+            retorno.computeIfAbsent(linhas[i], l -> new LinkedHashMap<>()).put(regra.getCampo(), regra.getMensagem());
+        }
+        return retorno;
+    }
+
+}
@@ -0,0 +1,32 @@
+package tech.devinhouse.personagens.validacao;
+
+// mesmas regras e mensagens das anotacoes de PersonagemRequest
+public enum Regra {
+
+    REGISTRO_OBRIGATORIO("registro", "Registro deve ser informado"),
+    CPF_OBRIGATORIO("cpf", "CPF deve ser informado"),
+    CPF_INVALIDO("cpf", "CPF inválido"),
+    NOME_OBRIGATORIO("nome", "Nome deve ser informado"),
+    NOME_TAMANHO("nome", "Nome com tamanho inválido"),
+    DATA_FUTURA("dataNascimento", "Data deve ser anterior à data atual"),
+    SERIE_OBRIGATORIA("serie", "Série deve ser informado"),
+    SERIE_TAMANHO("serie", "Série com tamanho inválido");
+
+    private final String campo;
+
+    private final String mensagem;
+
+    Regra(String campo, String mensagem) {
+        this.campo = campo;
+        this.mensagem = mensagem;
+    }
+
+    public String getCampo() {
+        return campo;
+    }
+
+    public String getMensagem() {
+        return mensagem;
+    }
+
+}
@@ -0,0 +1,46 @@
+package tech.devinhouse.personagens.validacao;
+
+import org.springframework.stereotype.Component;
+import tech.devinhouse.personagens.dto.PersonagemRequest;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// validacao de lotes sem reflexao: as regras de PersonagemRequest aplicadas em uma unica passada
+@Component
+public class ValidadorPersonagem {
+
+    // 11 digitos; fora da faixa tambem ficariam as chaves reservadas dos mapas e do journal (Long.MIN_VALUE)
+    private static final long CPF_MAXIMO = 99_999_999_999L;
+
+    public ErrosValidacao validar(List<PersonagemRequest> requests) {
+        ErrosValidacao erros = new ErrosValidacao();
+        LocalDate hoje = LocalDate.now();
+        for (int i = 0; i < requests.size(); i++) {
+            PersonagemRequest request = requests.get(i);
+            if (request == null) {
+                erros.adicionar(i, Regra.REGISTRO_OBRIGATORIO);
+                continue;
+            }
+            if (request.getCpf() == null)
+                erros.adicionar(i, Regra.CPF_OBRIGATORIO);
+            else if (request.getCpf() < 0 || request.getCpf() > CPF_MAXIMO)
+                erros.adicionar(i, Regra.CPF_INVALIDO);
+            validarTexto(erros, i, request.getNome(), 1, 40, Regra.NOME_OBRIGATORIO, Regra.NOME_TAMANHO);
+            if (request.getDataNascimento() != null && request.getDataNascimento().isAfter(hoje))
+                erros.adicionar(i, Regra.DATA_FUTURA);
+            validarTexto(erros, i, request.getSerie(), 5, 30, Regra.SERIE_OBRIGATORIA, Regra.SERIE_TAMANHO);
+        }
+        return erros;
+    }
+
+    // um erro por campo: vazio tem precedencia sobre tamanho
+    private void validarTexto(ErrosValidacao erros, int linha, String valor, int minimo, int maximo,
+                              Regra obrigatorio, Regra tamanho) {
+        if (valor == null || valor.isEmpty())
+            erros.adicionar(linha, obrigatorio);
+        else if (valor.length() < minimo || valor.length() > maximo)
+            erros.adicionar(linha, tamanho);
+    }
+
+}
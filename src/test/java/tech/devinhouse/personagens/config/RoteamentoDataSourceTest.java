@@ -0,0 +1,94 @@
+package tech.devinhouse.personagens.config;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.test.web.servlet.MockMvc;
+import tech.devinhouse.personagens.exception.RegistroNaoEncontradoException;
+import tech.devinhouse.personagens.model.Personagem;
+import tech.devinhouse.personagens.service.EventoRelay;
+import tech.devinhouse.personagens.service.PersonagemEventoService;
+import tech.devinhouse.personagens.service.PersonagemService;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.Month;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// a replica aponta para um banco separado, com um registro que so existe nela: o resultado da consulta
+// mostra qual pool atendeu, sem depender de contadores globais que o relay tambem incrementa. O primario
+// tambem eh proprio: os relays agendados dos outros contextos em cache disputariam os cursores no testdb
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primario-roteamento;DB_CLOSE_DELAY=-1",
+        "personagens.datasource.replica.jdbc-url=" + RoteamentoDataSourceTest.REPLICA})
+@AutoConfigureMockMvc
+class RoteamentoDataSourceTest {
+
+    static final String REPLICA = "jdbc:h2:mem:replica-roteamento;DB_CLOSE_DELAY=-1";
+
+    private static final long ID_SOMENTE_REPLICA = 990001L;
+
+    @Autowired
+    private PersonagemService service;
+
+    @Autowired
+    private PersonagemEventoService eventoService;
+
+    @MockBean  // sem o relay agendado, que disputaria os mesmos cursores com a chamada do teste
+    private EventoRelay relay;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ApplicationContext context;
+
+    // roda antes do contexto subir, para a replica ja existir quando o pool abrir as conexoes
+    @BeforeAll
+    static void criarReplica() throws SQLException {
+        try (var conexao = DriverManager.getConnection(REPLICA, "sa", ""); var st = conexao.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS personagem (id BIGINT PRIMARY KEY, cpf BIGINT, data_nascimento DATE, "
+                    + "nome VARCHAR(255), serie VARCHAR(255))");
+            st.execute("MERGE INTO personagem (id, cpf, nome) KEY (id) VALUES (" + ID_SOMENTE_REPLICA
+                    + ", 90000000099, 'Somente na replica')");
+        }
+    }
+
+    @Test
+    @DisplayName("Quando executa consultas e escritas, deve enviar as consultas para a replica e as escritas para o primario")
+    void roteamento() {
+        Personagem personagem = service.inserir(new Personagem(null, 90000000001L, "Jean-Luc Picard", LocalDate.of(2305, Month.JULY, 13), "Star Trek"));
+        assertThrows(RegistroNaoEncontradoException.class, () -> service.consultar(personagem.getId()));
+        assertEquals("Somente na replica", service.consultar(ID_SOMENTE_REPLICA).getNome());
+        service.excluir(personagem.getId());  // a verificacao de existencia dentro da escrita vai para o primario
+    }
+
+    @Test
+    @DisplayName("Quando o relay le cursores e eventos, deve usar o primario: a replica nem tem essas tabelas")
+    void roteamento_relay() {
+        service.inserir(new Personagem(null, 90000000002L, "William Riker", LocalDate.of(2335, Month.AUGUST, 19), "Star Trek"));
+        assertDoesNotThrow(() -> eventoService.publicarPendentes());
+    }
+
+    @Test
+    @DisplayName("Quando atende uma requisicao, cada transacao deve escolher o pool, sem entity manager aberto na view")
+    void roteamento_requisicao() throws Exception {
+        assertTrue(context.getBeansOfType(OpenEntityManagerInViewInterceptor.class).isEmpty());
+        mockMvc.perform(get("/api/personagens/" + ID_SOMENTE_REPLICA))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nome", is("Somente na replica")));
+    }
+
+}
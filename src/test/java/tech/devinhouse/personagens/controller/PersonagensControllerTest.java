@@ -9,27 +9,45 @@ import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import tech.devinhouse.personagens.dto.PersonagemRequest;
 import tech.devinhouse.personagens.exception.RegistroExistenteException;
+import tech.devinhouse.personagens.idempotencia.IdempotenciaFilter;
+import tech.devinhouse.personagens.idempotencia.IdempotenciaStore;
+import tech.devinhouse.personagens.idempotencia.RespostaArmazenada;
 import tech.devinhouse.personagens.exception.RegistroNaoEncontradoException;
 import tech.devinhouse.personagens.model.Personagem;
+import tech.devinhouse.personagens.model.PersonagemEvento;
+import tech.devinhouse.personagens.model.TipoEvento;
+import tech.devinhouse.personagens.rastreamento.Rastreador;
+import tech.devinhouse.personagens.service.IndiceDataNascimento;
+import tech.devinhouse.personagens.service.PersonagemBroadcaster;
+import tech.devinhouse.personagens.service.PersonagemEventoService;
 import tech.devinhouse.personagens.service.PersonagemService;
+import tech.devinhouse.personagens.validacao.ValidadorPersonagem;
 
 import java.time.LocalDate;
 import java.time.Month;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Optional;
 
 import static org.hamcrest.Matchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
 @WebMvcTest
+@Import(ValidadorPersonagem.class)
 class PersonagensControllerTest {
 
     @Autowired
@@ -44,6 +62,21 @@ class PersonagensControllerTest {
     @MockBean  // mock para dependencias da classe de controller
     private PersonagemService service;
 
+    @MockBean
+    private PersonagemEventoService eventoService;
+
+    @MockBean
+    private PersonagemBroadcaster broadcaster;
+
+    @MockBean
+    private IdempotenciaStore idempotenciaStore;
+
+    @MockBean
+    private IndiceDataNascimento indiceDataNascimento;
+
+    @MockBean
+    private Rastreador rastreador;
+
 
     @Test
     @DisplayName("Quando nao há personagens registrados, deve retornar lista vazia")
@@ -105,6 +138,18 @@ class PersonagensControllerTest {
                 .andExpect(jsonPath("$.cpf", containsStringIgnoringCase("deve ser informado")));
     }
 
+    @Test
+    @DisplayName("Quando inclusao com CPF fora dos 11 digitos, deve retornar erro")
+    void incluir_cpfInvalido() throws Exception {
+        var req = new PersonagemRequest(Long.MIN_VALUE, "James Kirk", LocalDate.of(1925, Month.JANUARY, 1), "Star Trek");
+        mockMvc.perform(post("/api/personagens")
+                .content(objectMapper.writeValueAsString(req))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.cpf", is("CPF inválido")));
+        Mockito.verify(service, Mockito.never()).inserir(Mockito.any(Personagem.class));
+    }
+
     @Test
     @DisplayName("Quando inclusao com CPF jah existente, deve retornar erro")
     void incluir_cpfJaCadastrado() throws Exception {
@@ -181,4 +226,168 @@ class PersonagensControllerTest {
 
     }
 
+    @Test
+    @DisplayName("Quando consulta eventos a partir de uma sequencia, deve retornar somente os eventos posteriores")
+    void consultarEventos() throws Exception {
+        var personagem = new Personagem(1L, 11111111111L, "James Kirk", LocalDate.of(1925, Month.JANUARY, 1), "Star Trek");
+        var evento = new PersonagemEvento(TipoEvento.INSERCAO, personagem);
+        evento.setId(6L);
+        Mockito.when(eventoService.consultarDesde(5L)).thenReturn(List.of(evento));
+        mockMvc.perform(get("/api/personagens/eventos")
+                .param("desde", "5")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(6)))
+                .andExpect(jsonPath("$[0].tipo", is("INSERCAO")))
+                .andExpect(jsonPath("$[0].personagemId", is(1)));
+    }
+
+    @Test
+    @DisplayName("Quando assina o stream de personagens, deve iniciar resposta assincrona")
+    void acompanhar() throws Exception {
+        Mockito.when(broadcaster.assinar(Mockito.any())).thenReturn(new SseEmitter());
+        mockMvc.perform(get("/api/personagens/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted());
+    }
+
+    @Test
+    @DisplayName("Quando assina o feed de eventos por SSE, deve retomar do outbox a partir da sequencia informada")
+    void acompanharEventos() throws Exception {
+        Mockito.when(broadcaster.retomar(Mockito.eq(5L), Mockito.any())).thenReturn(new SseEmitter());
+        mockMvc.perform(get("/api/personagens/eventos")
+                .param("desde", "5")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted());
+        Mockito.verify(broadcaster).retomar(Mockito.eq(5L), Mockito.any());
+    }
+
+    @Test
+    @DisplayName("Quando reconecta ao stream com Last-Event-ID, deve retomar do outbox em vez de enviar o snapshot")
+    void acompanhar_retomada() throws Exception {
+        Mockito.when(broadcaster.retomar(Mockito.eq(7L), Mockito.any())).thenReturn(new SseEmitter());
+        mockMvc.perform(get("/api/personagens/stream")
+                .header("Last-Event-ID", "7")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted());
+        Mockito.verify(broadcaster, Mockito.never()).assinar(Mockito.any());
+    }
+
+    @Test
+    @DisplayName("Quando o cliente excede o limite de requisicoes da rota, deve retornar erro 429")
+    void incluirDefault_limiteExcedido() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/personagens/dados").principal(() -> "cliente-limite"))
+                    .andExpect(status().isCreated());
+        }
+        mockMvc.perform(post("/api/personagens/dados").principal(() -> "cliente-limite"))
+                .andExpect(status().isTooManyRequests())  // 429
+                .andExpect(jsonPath("$.erro", is(notNullValue())));
+    }
+
+    @Test
+    @DisplayName("Quando repete a inclusao com o mesmo Idempotency-Key, deve reenviar a resposta original sem chamar o servico")
+    void incluir_idempotente() throws Exception {
+        byte[] corpoOriginal = "{\"id\":1,\"nome\":\"James Kirk\"}".getBytes(StandardCharsets.UTF_8);
+        var req = new PersonagemRequest(11111111111L, "James Kirk", LocalDate.of(1925, Month.JANUARY, 1), "Star Trek");
+        byte[] corpoRequisicao = objectMapper.writeValueAsBytes(req);
+        Mockito.when(idempotenciaStore.consultar("usuario:cliente-1", "chave-1"))
+                .thenReturn(Optional.of(new RespostaArmazenada(201, "1", MediaType.APPLICATION_JSON_VALUE, corpoOriginal,
+                        IdempotenciaFilter.impressao(corpoRequisicao))));
+        mockMvc.perform(post("/api/personagens")
+                .header("Idempotency-Key", "chave-1")
+                .principal(() -> "cliente-1")
+                .content(corpoRequisicao)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", "1"))
+                .andExpect(content().bytes(corpoOriginal));
+        Mockito.verifyNoInteractions(service);
+    }
+
+    @Test
+    @DisplayName("Quando consulta com faixa de idade, deve usar a consulta por idade")
+    void consultar_faixaIdade() throws Exception {
+        var personagem = new Personagem(1L, 11111111111L, "James Kirk", LocalDate.of(1925, Month.JANUARY, 1), "Star Trek");
+        Mockito.when(service.consultarPorIdade(90, 110)).thenReturn(List.of(personagem));
+        mockMvc.perform(get("/api/personagens")
+                .param("idadeMin", "90")
+                .param("idadeMax", "110")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].nome", is(personagem.getNome())));
+        Mockito.verify(service, Mockito.never()).consultar();
+    }
+
+    @Test
+    @DisplayName("Quando consulta com idade negativa ou grande demais, deve retornar 400 sem chamar o servico")
+    void consultar_faixaIdadeForaDosLimites() throws Exception {
+        mockMvc.perform(get("/api/personagens").param("idadeMin", "-1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.idadeMin", is(notNullValue())));
+        mockMvc.perform(get("/api/personagens").param("idadeMax", "2000000000"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.idadeMax", is(notNullValue())));
+        Mockito.verifyNoInteractions(service);
+    }
+
+    @Test
+    @DisplayName("Quando consulta o histograma com faixa fora dos limites, deve retornar 400 sem consultar o indice")
+    void histograma_faixaForaDosLimites() throws Exception {
+        mockMvc.perform(get("/api/personagens/idades/histograma").param("faixa", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.faixa", is(notNullValue())));
+        mockMvc.perform(get("/api/personagens/idades/histograma").param("faixa", "2000000000"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.faixa", is(notNullValue())));
+        Mockito.verifyNoInteractions(indiceDataNascimento);
+    }
+
+    @Test
+    @DisplayName("Quando consulta com idade minima maior que a maxima, deve retornar 400 sem chamar o servico")
+    void consultar_faixaIdadeInvertida() throws Exception {
+        mockMvc.perform(get("/api/personagens")
+                .param("idadeMin", "50")
+                .param("idadeMax", "10"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.erro", is(notNullValue())));
+        Mockito.verifyNoInteractions(service);
+    }
+
+    @Test
+    @DisplayName("Quando inclusao em lote com registros invalidos, deve retornar os erros por linha")
+    void incluirLote_invalido() throws Exception {
+        var lote = List.of(
+                new PersonagemRequest(11111111111L, "James Kirk", LocalDate.of(1925, Month.JANUARY, 1), "Star Trek"),
+                new PersonagemRequest(null, "", LocalDate.of(1925, Month.JANUARY, 1), "Star Trek"));
+        mockMvc.perform(post("/api/personagens/lote")
+                .content(objectMapper.writeValueAsString(lote))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.0").doesNotExist())
+                .andExpect(jsonPath("$.1.cpf", containsStringIgnoringCase("deve ser informado")))
+                .andExpect(jsonPath("$.1.nome", containsStringIgnoringCase("deve ser informado")));
+        Mockito.verifyNoInteractions(service);
+    }
+
+    @Test
+    @DisplayName("Quando inclusao em lote com registros validos, deve inserir todos")
+    void incluirLote_sucesso() throws Exception {
+        var lote = List.of(
+                new PersonagemRequest(11111111111L, "James Kirk", LocalDate.of(1925, Month.JANUARY, 1), "Star Trek"),
+                new PersonagemRequest(22222222222L, "Spock", LocalDate.of(1900, Month.FEBRUARY, 2), "Star Trek"));
+        Mockito.when(service.inserir(Mockito.anyList())).thenAnswer(i -> i.getArgument(0));
+        mockMvc.perform(post("/api/personagens/lote")
+                .content(objectMapper.writeValueAsString(lote))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].nome", is("Spock")));
+    }
+
 }
\ No newline at end of file
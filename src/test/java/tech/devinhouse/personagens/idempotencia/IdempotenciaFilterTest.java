@@ -0,0 +1,115 @@
+package tech.devinhouse.personagens.idempotencia;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotenciaFilterTest {
+
+    private final IdempotenciaFilter filter = new IdempotenciaFilter();
+
+    private final List<String> corposRecebidos = new ArrayList<>();
+
+    // faz o papel do controller: le o corpo e responde 201 com um id novo a cada chamada
+    private final HttpServlet controller = new HttpServlet() {
+        @Override
+        protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            corposRecebidos.add(new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+            int id = corposRecebidos.size();
+            response.setStatus(HttpServletResponse.SC_CREATED);
+            response.setHeader(HttpHeaders.LOCATION, String.valueOf(id));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"id\":" + id + "}");
+        }
+    };
+
+    {
+        ReflectionTestUtils.setField(filter, "store", new IdempotenciaStore(100, 4, Duration.ofMinutes(1)));
+        ReflectionTestUtils.setField(filter, "objectMapper", new ObjectMapper());
+    }
+
+    @Test
+    @DisplayName("Quando repete a requisicao com a mesma chave e o mesmo corpo, deve reenviar a primeira resposta 201")
+    void repetir_mesmoCorpo() throws Exception {
+        var primeira = enviar("/api/personagens", "chave-1", "cliente-1", "{\"nome\":\"James Kirk\"}");
+        assertEquals(201, primeira.getStatus());
+        assertEquals(List.of("{\"nome\":\"James Kirk\"}"), corposRecebidos);
+
+        var repetida = enviar("/api/personagens", "chave-1", "cliente-1", "{\"nome\":\"James Kirk\"}");
+        assertEquals(201, repetida.getStatus());
+        assertEquals(primeira.getHeader(HttpHeaders.LOCATION), repetida.getHeader(HttpHeaders.LOCATION));
+        assertEquals(primeira.getContentAsString(), repetida.getContentAsString());
+        assertEquals(1, corposRecebidos.size());
+    }
+
+    @Test
+    @DisplayName("Quando reusa a chave com outro corpo, deve retornar 422 sem chamar o controller")
+    void repetir_outraRequisicao() throws Exception {
+        enviar("/api/personagens", "chave-1", "cliente-1", "{\"nome\":\"James Kirk\"}");
+
+        assertEquals(422, enviar("/api/personagens", "chave-1", "cliente-1", "{\"nome\":\"Spock\"}").getStatus());
+        assertEquals(1, corposRecebidos.size());
+    }
+
+    @Test
+    @DisplayName("Quando outro cliente usa a mesma chave, deve processar como uma requisicao independente")
+    void repetir_outroCliente() throws Exception {
+        var primeira = enviar("/api/personagens", "chave-1", "cliente-1", "{\"nome\":\"James Kirk\"}");
+        var outroCliente = enviar("/api/personagens", "chave-1", "cliente-2", "{\"nome\":\"Spock\"}");
+        assertEquals(201, outroCliente.getStatus());
+        assertNotEquals(primeira.getHeader(HttpHeaders.LOCATION), outroCliente.getHeader(HttpHeaders.LOCATION));
+        assertEquals(2, corposRecebidos.size());
+    }
+
+    @Test
+    @DisplayName("Quando a rota vem com parametros de sessao ou com context path, a chave deve ser respeitada; em outras rotas, ignorada")
+    void rota() throws Exception {
+        enviar("/api/personagens;jsessionid=abc", "chave-1", "cliente-1", "{}");
+        enviar("/api/personagens;jsessionid=def", "chave-1", "cliente-1", "{}");
+        assertEquals(1, corposRecebidos.size());
+
+        for (int i = 0; i < 2; i++) {
+            var request = requisicao("/app/api/personagens", "chave-2", "cliente-1", "{}");
+            request.setContextPath("/app");
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain(controller));
+        }
+        assertEquals(2, corposRecebidos.size());
+
+        enviar("/api/personagens/lote", "chave-3", "cliente-1", "[]");
+        enviar("/api/personagens/lote", "chave-3", "cliente-1", "[]");
+        assertEquals(4, corposRecebidos.size());
+    }
+
+    private MockHttpServletResponse enviar(String uri, String chave, String cliente, String corpo) throws Exception {
+        var response = new MockHttpServletResponse();
+        filter.doFilter(requisicao(uri, chave, cliente, corpo), response, new MockFilterChain(controller));
+        return response;
+    }
+
+    private static MockHttpServletRequest requisicao(String uri, String chave, String cliente, String corpo) {
+        var request = new MockHttpServletRequest("POST", uri);
+        request.addHeader(IdempotenciaFilter.CABECALHO, chave);
+        request.setUserPrincipal(() -> cliente);
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent(corpo.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+}
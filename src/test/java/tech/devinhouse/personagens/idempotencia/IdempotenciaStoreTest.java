@@ -0,0 +1,139 @@
+package tech.devinhouse.personagens.idempotencia;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import tech.devinhouse.personagens.idempotencia.IdempotenciaStore.Reserva;
+import tech.devinhouse.personagens.model.RespostaIdempotente;
+import tech.devinhouse.personagens.model.RespostaIdempotenteId;
+import tech.devinhouse.personagens.repository.RespostaIdempotenteRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotenciaStoreTest {
+
+    private final RespostaArmazenada resposta = new RespostaArmazenada(201, "1", "application/json", new byte[]{1, 2, 3}, "imp");
+
+    @Test
+    @DisplayName("Quando a chave ja foi reservada, nao deve permitir nova reserva")
+    void reservar_chaveEmProcessamento() {
+        var store = new IdempotenciaStore(100, 4, Duration.ofMinutes(1));
+        assertEquals(Reserva.RESERVADA, store.reservar("cli", "chave", "imp"));
+        assertEquals(Reserva.EM_PROCESSAMENTO, store.reservar("cli", "chave", "imp"));
+        assertTrue(store.consultar("cli", "chave").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Quando a chave ja foi usada com outra impressao, deve indicar outra requisicao")
+    void reservar_outraRequisicao() {
+        var store = new IdempotenciaStore(100, 4, Duration.ofMinutes(1));
+        store.reservar("cli", "chave", "imp");
+        assertEquals(Reserva.OUTRA_REQUISICAO, store.reservar("cli", "chave", "outra"));
+        store.concluir("cli", "chave", resposta);
+        assertEquals(Reserva.OUTRA_REQUISICAO, store.reservar("cli", "chave", "outra"));
+    }
+
+    @Test
+    @DisplayName("Quando a requisicao foi concluida, deve retornar a resposta armazenada")
+    void concluir() {
+        var store = new IdempotenciaStore(100, 4, Duration.ofMinutes(1));
+        store.reservar("cli", "chave", "imp");
+        store.concluir("cli", "chave", resposta);
+        assertSame(resposta, store.consultar("cli", "chave").orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Quando a reserva eh liberada, deve permitir nova tentativa")
+    void liberar() {
+        var store = new IdempotenciaStore(100, 4, Duration.ofMinutes(1));
+        store.reservar("cli", "chave", "imp");
+        store.liberar("cli", "chave");
+        assertEquals(Reserva.RESERVADA, store.reservar("cli", "chave", "imp"));
+    }
+
+    @Test
+    @DisplayName("Quando o TTL expira, a resposta nao deve mais ser retornada")
+    void consultar_expirada() throws InterruptedException {
+        var store = new IdempotenciaStore(100, 4, Duration.ofMillis(10));
+        store.reservar("cli", "chave", "imp");
+        store.concluir("cli", "chave", resposta);
+        Thread.sleep(20);
+        assertTrue(store.consultar("cli", "chave").isEmpty());
+        assertEquals(Reserva.RESERVADA, store.reservar("cli", "chave", "imp"));
+    }
+
+    @Test
+    @DisplayName("Quando a capacidade eh excedida, deve descartar as respostas concluidas mais antigas")
+    void reservar_capacidadeExcedida() {
+        var store = new IdempotenciaStore(2, 1, Duration.ofMinutes(1));
+        store.reservar("cli", "a", "imp");
+        store.concluir("cli", "a", resposta);
+        store.reservar("cli", "b", "imp");
+        store.reservar("cli", "c", "imp");
+        assertTrue(store.consultar("cli", "a").isEmpty());
+        assertEquals(Reserva.RESERVADA, store.reservar("cli", "a", "imp"));
+    }
+
+    @Test
+    @DisplayName("Quando a capacidade eh excedida so com reservas em andamento, nenhuma deve ser descartada")
+    void reservar_capacidadeExcedidaSemConcluidas() {
+        var store = new IdempotenciaStore(2, 1, Duration.ofMinutes(1));
+        store.reservar("cli", "a", "imp");
+        store.reservar("cli", "b", "imp");
+        store.reservar("cli", "c", "imp");
+        assertEquals(Reserva.EM_PROCESSAMENTO, store.reservar("cli", "a", "imp"));
+        store.concluir("cli", "b", resposta);
+        store.reservar("cli", "d", "imp");
+        assertTrue(store.consultar("cli", "b").isEmpty());
+        assertEquals(Reserva.EM_PROCESSAMENTO, store.reservar("cli", "a", "imp"));
+        assertEquals(Reserva.EM_PROCESSAMENTO, store.reservar("cli", "c", "imp"));
+    }
+
+    @Test
+    @DisplayName("Quando outro cliente usa a mesma chave, deve ser uma requisicao independente")
+    void reservar_outroCliente() {
+        var store = new IdempotenciaStore(100, 4, Duration.ofMinutes(1));
+        store.reservar("cli", "chave", "imp");
+        store.concluir("cli", "chave", resposta);
+        assertEquals(Reserva.RESERVADA, store.reservar("outro", "chave", "outra"));
+        assertSame(resposta, store.consultar("cli", "chave").orElseThrow());
+        assertTrue(store.consultar("outro", "chave").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Quando uma reserva antiga eh concluida, a varredura deve expirar antes as concluidas antes dela")
+    void concluir_mantemOrdemDeExpiracao() throws InterruptedException {
+        var store = new IdempotenciaStore(2, 1, Duration.ofMillis(1000));
+        store.reservar("cli", "a", "imp");
+        Thread.sleep(400);
+        store.reservar("cli", "b", "imp");
+        store.concluir("cli", "b", resposta);
+        Thread.sleep(200);
+        store.concluir("cli", "a", resposta);  // a passa a expirar depois de b
+        Thread.sleep(900);
+        store.reservar("cli", "c", "imp");  // a varredura precisa liberar b, senao a capacidade descartaria a
+        assertSame(resposta, store.consultar("cli", "a").orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Quando a resposta vem do banco, deve expirar pelo instante de criacao e nao pelo da leitura")
+    void consultar_persistidaExpiraPelaCriacao() throws InterruptedException {
+        var store = new IdempotenciaStore(100, 4, Duration.ofMillis(1000));
+        var repo = Mockito.mock(RespostaIdempotenteRepository.class);
+        ReflectionTestUtils.setField(store, "repo", repo);
+        ReflectionTestUtils.setField(store, "persistir", true);
+        var persistida = new RespostaIdempotente("cli", "chave", 201, "1", "application/json", new byte[]{1}, "imp",
+                LocalDateTime.now().minus(Duration.ofMillis(600)));
+        Mockito.when(repo.findById(new RespostaIdempotenteId("cli", "chave")))
+                .thenReturn(Optional.of(persistida), Optional.empty());
+        assertTrue(store.consultar("cli", "chave").isPresent());
+        Thread.sleep(600);
+        assertTrue(store.consultar("cli", "chave").isEmpty());
+    }
+
+}
@@ -0,0 +1,63 @@
+package tech.devinhouse.personagens.limite;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimitadorConcorrenciaTest {
+
+    @Test
+    @DisplayName("Quando atinge o limite de requisicoes simultaneas, deve negar novas requisicoes")
+    void tentarAdquirir_limiteAtingido() {
+        var limitador = new LimitadorConcorrencia(2, 1, 10, 2.0);
+        assertTrue(limitador.tentarAdquirir());
+        assertTrue(limitador.tentarAdquirir());
+        assertFalse(limitador.tentarAdquirir());
+        limitador.liberar(0, 1_000_000, true);
+        assertTrue(limitador.tentarAdquirir());
+    }
+
+    @Test
+    @DisplayName("Quando a latencia dispara em relacao a base, deve reduzir o limite")
+    void liberar_latenciaAlta() {
+        var limitador = new LimitadorConcorrencia(10, 1, 20, 2.0);
+        limitador.tentarAdquirir();
+        limitador.liberar(0, 1_000_000, true);
+        long relogio = 1_000_000;
+        for (int i = 0; i < 10; i++) {  // uma apos a outra: cada uma comeca depois da reducao anterior
+            limitador.tentarAdquirir();
+            limitador.liberar(relogio, relogio += 50_000_000, true);
+        }
+        assertTrue(limitador.getLimite() < 10);
+        assertEquals(0, limitador.getEmUso());
+    }
+
+    @Test
+    @DisplayName("Quando as requisicoes falham, o limite nao deve ficar abaixo do minimo")
+    void liberar_respeitaMinimo() {
+        var limitador = new LimitadorConcorrencia(4, 2, 20, 2.0);
+        for (int i = 0; i < 50; i++) {
+            limitador.tentarAdquirir();
+            limitador.liberar(i * 1_000_000L, (i + 1) * 1_000_000L, false);
+        }
+        assertEquals(2, limitador.getLimite());
+    }
+
+    @Test
+    @DisplayName("Quando uma rajada de requisicoes simultaneas termina lenta, deve reduzir o limite uma unica vez")
+    void liberar_umaReducaoPorRtt() {
+        var limitador = new LimitadorConcorrencia(10, 1, 20, 2.0);
+        limitador.tentarAdquirir();
+        limitador.liberar(0, 1_000_000, true);
+        for (int i = 0; i < 10; i++)
+            limitador.tentarAdquirir();
+        for (int i = 0; i < 10; i++)  // todas em voo desde o mesmo instante
+            limitador.liberar(10_000_000, 60_000_000 + i, true);
+        assertEquals(9, limitador.getLimite());
+        limitador.tentarAdquirir();
+        limitador.liberar(60_000_010, 110_000_000, true);  // comecou depois da reducao
+        assertEquals(8, limitador.getLimite());
+    }
+
+}
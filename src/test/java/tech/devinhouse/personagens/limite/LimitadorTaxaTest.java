@@ -0,0 +1,59 @@
+package tech.devinhouse.personagens.limite;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimitadorTaxaTest {
+
+    @Test
+    @DisplayName("Quando o cliente consome toda a capacidade, deve negar as proximas requisicoes")
+    void tentarAdquirir_esgotado() {
+        var limitador = new LimitadorTaxa(16, 3, 0.001);
+        assertTrue(limitador.tentarAdquirir("cliente"));
+        assertTrue(limitador.tentarAdquirir("cliente"));
+        assertTrue(limitador.tentarAdquirir("cliente"));
+        assertFalse(limitador.tentarAdquirir("cliente"));
+    }
+
+    @Test
+    @DisplayName("Quando um cliente esgota seu balde, outro cliente nao deve ser afetado")
+    void tentarAdquirir_clientesIsolados() {
+        var limitador = new LimitadorTaxa(1024, 1, 0.001);
+        assertTrue(limitador.tentarAdquirir("a"));
+        assertFalse(limitador.tentarAdquirir("a"));
+        assertTrue(limitador.tentarAdquirir("b"));
+    }
+
+    @Test
+    @DisplayName("Quando passa o tempo de reposicao, deve liberar novas fichas")
+    void tentarAdquirir_reposicao() throws InterruptedException {
+        var limitador = new LimitadorTaxa(16, 1, 100);
+        assertTrue(limitador.tentarAdquirir("cliente"));
+        assertFalse(limitador.tentarAdquirir("cliente"));
+        Thread.sleep(50);
+        assertTrue(limitador.tentarAdquirir("cliente"));
+    }
+
+    @Test
+    @DisplayName("Quando ha muito mais clientes que o maximo, cada um deve ter seu proprio balde")
+    void tentarAdquirir_semColisao() {
+        var limitador = new LimitadorTaxa(16, 1, 0.001);
+        for (int i = 0; i < 5_000; i++)
+            assertTrue(limitador.tentarAdquirir("cliente-" + i), "cliente-" + i);
+        assertFalse(limitador.tentarAdquirir("cliente-0"));
+    }
+
+    @Test
+    @DisplayName("Quando passa do maximo de clientes, deve descartar os baldes que ja encheram de novo")
+    void tentarAdquirir_descartaCheios() throws InterruptedException {
+        var limitador = new LimitadorTaxa(2, 1, 1000);
+        assertTrue(limitador.tentarAdquirir("a"));
+        assertTrue(limitador.tentarAdquirir("b"));
+        Thread.sleep(20);
+        assertTrue(limitador.tentarAdquirir("c"));
+        assertEquals(1, limitador.getClientes());
+    }
+
+}
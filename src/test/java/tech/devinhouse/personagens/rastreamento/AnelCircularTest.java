@@ -0,0 +1,53 @@
+package tech.devinhouse.personagens.rastreamento;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnelCircularTest {
+
+    @Test
+    @DisplayName("Quando passa da capacidade, deve manter somente os itens mais recentes, do mais novo para o mais antigo")
+    void recentes() {
+        var anel = new AnelCircular<Integer>(4);
+        for (int i = 1; i <= 10; i++)
+            anel.registrar(i);
+        assertEquals(List.of(10, 9, 8, 7), anel.recentes(100));
+        assertEquals(List.of(10, 9), anel.recentes(2));
+        assertTrue(new AnelCircular<Integer>(4).recentes(10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Quando varias threads registram ao mesmo tempo, nenhum item deve se perder enquanto houver espaco")
+    void concorrencia() throws InterruptedException {
+        int threads = 8;
+        int porThread = 1_000;
+        var anel = new AnelCircular<Integer>(threads * porThread);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch largada = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            int base = t * porThread;
+            executor.submit(() -> {
+                largada.await();
+                for (int i = 0; i < porThread; i++)
+                    anel.registrar(base + i);
+                return null;
+            });
+        }
+        largada.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        Set<Integer> itens = new HashSet<>(anel.recentes(anel.capacidade()));
+        assertEquals(threads * porThread, itens.size());
+    }
+
+}
@@ -0,0 +1,78 @@
+package tech.devinhouse.personagens.rastreamento;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "personagens.rastreamento.limite-lento-ms=0")  // toda requisicao conta como lenta
+@AutoConfigureMockMvc
+class RastreamentoTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private Rastreador rastreador;
+
+    @Autowired
+    private RastrosEndpoint endpoint;
+
+    @Test
+    @DisplayName("Quando atende requisicoes, deve capturar os trechos de cada etapa e o SQL executado")
+    void capturarRequisicao() throws Exception {
+        String json = mockMvc.perform(post("/api/personagens")
+                        .content("{\"cpf\": 90000000002, \"nome\": \"Kathryn Janeway\", \"dataNascimento\": \"20-05-1960\", \"serie\": \"Star Trek\"}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String id = json.replaceAll(".*\"id\":(\\d+).*", "$1");
+        mockMvc.perform(get("/api/personagens/{id}/idade", id)).andExpect(status().isOk());
+
+        RastroConcluido idade = rastreador.lentos(1).get(0);
+        assertEquals("/api/personagens/{id}/idade", idade.rota());
+        assertEquals(200, idade.status());
+        List<Etapa> etapas = idade.trechos().stream().map(RastroConcluido.Trecho::etapa).toList();
+        assertTrue(etapas.containsAll(List.of(Etapa.LEITURA, Etapa.CONTROLLER, Etapa.SERVICE, Etapa.REPOSITORIO,
+                Etapa.SQL, Etapa.SERIALIZACAO)), etapas.toString());
+        assertTrue(idade.trechos().stream().anyMatch(t -> t.etapa() == Etapa.SQL && t.nome().startsWith("select")));
+        assertTrue(idade.totaisUs().get(Etapa.REQUISICAO) >= idade.totaisUs().get(Etapa.CONTROLLER));
+
+        RastroConcluido insercao = rastreador.lentos(2).get(1);
+        assertEquals("POST", insercao.metodo());
+        assertTrue(insercao.trechos().stream().anyMatch(t -> t.etapa() == Etapa.SQL && t.nome().startsWith("insert")));
+        assertTrue(insercao.totaisUs().containsKey(Etapa.MAPEAMENTO));
+
+        mockMvc.perform(delete("/api/personagens/{id}", id)).andExpect(status().isNoContent());
+        Map<String, Object> resposta = endpoint.rastros(5);
+        assertEquals(0L, resposta.get("limiteLentoMs"));
+        assertTrue(((Map<?, ?>) resposta.get("etapas")).containsKey(Etapa.SQL));
+        assertEquals(3, ((List<?>) resposta.get("recentes")).size());
+    }
+
+    @Test
+    @DisplayName("Quando a URI traz o CPF ou a aplicacao tem context path, deve registrar o padrao da rota")
+    void registrarRota() throws Exception {
+        mockMvc.perform(get("/api/personagens/cpf/{cpf}", 90000000077L)).andExpect(status().isNotFound());
+        assertEquals("/api/personagens/cpf/{cpf}", rastreador.lentos(1).get(0).rota());
+
+        mockMvc.perform(get("/app/api/personagens/{id}/idade", 990077L).contextPath("/app"))
+                .andExpect(status().isNotFound());
+        RastroConcluido comContexto = rastreador.lentos(1).get(0);
+        assertEquals("/api/personagens/{id}/idade", comContexto.rota());
+        assertFalse(comContexto.toString().contains("990077"));
+    }
+
+}
@@ -0,0 +1,183 @@
+package tech.devinhouse.personagens.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.FluentQuery;
+import tech.devinhouse.personagens.model.Personagem;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// cenarios que toda implementacao de PersonagemRepository deve atender; cada subclasse so acrescenta os proprios
+public abstract class PersonagemRepositoryContrato {
+
+    protected abstract PersonagemRepository repo();
+
+    @Test
+    @DisplayName("Quando existem 2 registros sendo que um deles tem data de nasc maior que o parametro, deve retornar somente este registro")
+    void consultarPorDataNascimentoPosteriorA_possuiResultados() {
+        // pre condicoes (given)
+        Personagem pers1 = repo().save(new Personagem(null, 111L, "Personagem 1", LocalDate.of(1700, Month.JANUARY, 1), "serie 1"));
+        Personagem pers2 = repo().save(new Personagem(null, 222L, "Personagem 2", LocalDate.of(1902, Month.JANUARY, 1), "serie 2"));
+        // chamando o metodo a ser testado (when)
+        List<Personagem> resultado = repo().consultarPorDataNascimentoPosteriorA(LocalDate.of(1900, Month.JANUARY, 1));
+        // conferindo resultados (then)
+        assertEquals(1, resultado.size());
+        assertEquals(pers2.getNome(), resultado.get(0).getNome());
+        assertNotNull(pers1.getId());
+        assertNotNull(pers2.getId());
+    }
+
+    @Test
+    @DisplayName("Quando existem registros mas nenhum tem data de nasc maior que o parametro, deve retornar a lista vazia")
+    void consultarPorDataNascimentoPosteriorA_naoPossuiResultados() {
+        repo().save(new Personagem(null, 111L, "Personagem 1", LocalDate.of(1700, Month.JANUARY, 1), "serie 1"));
+        repo().save(new Personagem(null, 222L, "Personagem 2", LocalDate.of(1902, Month.JANUARY, 1), "serie 2"));
+        List<Personagem> resultado = repo().consultarPorDataNascimentoPosteriorA(LocalDate.of(1905, Month.JANUARY, 1));
+        assertTrue(resultado.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Quando nao existem registros, deve retornar a lista vazia")
+    void consultarPorDataNascimentoPosteriorA_semRegistros() {
+        List<Personagem> resultado = repo().consultarPorDataNascimentoPosteriorA(LocalDate.of(1905, Month.JANUARY, 1));
+        assertTrue(resultado.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Quando existe 1 personagem com parte do nome igual ao parametro, deve retornar este personagem")
+    void consultarPorNomeParcial_existe() {
+        var pers1 = repo().save(new Personagem(null, 111L, "Personagem ABC", LocalDate.of(1700, Month.JANUARY, 1), "serie 1"));
+        repo().save(new Personagem(null, 222L, "Personagem DEF", LocalDate.of(1902, Month.JANUARY, 1), "serie 2"));
+        var resultado = repo().consultarPorNomeParcial("%AB%");
+        assertEquals(1, resultado.size());
+        assertEquals(pers1.getNome(), resultado.get(0).getNome());
+        assertEquals(2, repo().consultarPorNomeParcial("Person_gem%").size());
+    }
+
+    @Test
+    @DisplayName("Quando nao tem registros, deve retornar lista vazia")
+    void consultarPorNomeParcial_semRegistros() {
+        List<Personagem> resultado = repo().consultarPorNomeParcial("%AB%");
+        assertTrue(resultado.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Quando nao existem personagens cadastrados que atendem ao critério de nome parcial, deve retornar lista vazia")
+    void consultarPorNomeParcial_naoExisteRegistro() {
+        repo().save(new Personagem(null, 111L, "Personagem ABC", LocalDate.of(1700, Month.JANUARY, 1), "serie 1"));
+        repo().save(new Personagem(null, 222L, "Personagem DEF", LocalDate.of(1902, Month.JANUARY, 1), "serie 2"));
+        var resultado = repo().consultarPorNomeParcial("%ZZ%");
+        assertTrue(resultado.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Quando consulta por faixa de datas, deve retornar somente os registros dentro da faixa")
+    void consultarPorDataNascimentoEntre() {
+        repo().save(new Personagem(null, 111L, "Personagem 1", LocalDate.of(1700, Month.JANUARY, 1), "serie 1"));
+        repo().save(new Personagem(null, 222L, "Personagem 2", LocalDate.of(1902, Month.JANUARY, 1), "serie 2"));
+        repo().save(new Personagem(null, 333L, "Personagem 3", LocalDate.of(1950, Month.JANUARY, 1), "serie 3"));
+        var resultado = repo().consultarPorDataNascimentoEntre(LocalDate.of(1700, Month.JANUARY, 1), LocalDate.of(1950, Month.JANUARY, 1));
+        assertEquals(List.of("Personagem 2", "Personagem 3"), resultado.stream().map(Personagem::getNome).sorted().toList());
+    }
+
+    @Test
+    @DisplayName("Quando consulta por data limite, deve retornar os registros nascidos ate a data inclusive")
+    void consultarPorDataNascimentoAteh() {
+        var pers1 = repo().save(new Personagem(null, 111L, "Personagem 1", LocalDate.of(1700, Month.JANUARY, 1), "serie 1"));
+        repo().save(new Personagem(null, 222L, "Personagem 2", LocalDate.of(1902, Month.JANUARY, 1), "serie 2"));
+        var resultado = repo().consultarPorDataNascimentoAteh(LocalDate.of(1700, Month.JANUARY, 1));
+        assertEquals(1, resultado.size());
+        assertEquals(pers1.getNome(), resultado.get(0).getNome());
+    }
+
+    @Test
+    @DisplayName("Quando altera o cpf e exclui registros, as consultas devem acompanhar")
+    void alterarExcluir() {
+        var pers = repo().save(new Personagem(null, 111L, "Personagem 1", LocalDate.of(1700, Month.JANUARY, 1), "serie 1"));
+        var alterado = repo().findById(pers.getId()).orElseThrow();
+        alterado.setCpf(999L);
+        alterado.setNome("Outro nome");
+        repo().save(alterado);
+        assertFalse(repo().existsPersonagemByCpf(111L));
+        assertTrue(repo().existsPersonagemByCpf(999L));
+        assertEquals("Outro nome", repo().findByCpf(999L).orElseThrow().getNome());
+        assertTrue(repo().consultarPorNomeParcial("Personagem%").isEmpty());
+        repo().delete(alterado);
+        assertTrue(repo().findById(pers.getId()).isEmpty());
+        assertTrue(repo().findByCpf(999L).isEmpty());
+        assertTrue(repo().consultarPorDataNascimentoAteh(LocalDate.of(2000, Month.JANUARY, 1)).isEmpty());
+        assertEquals(0, repo().count());
+    }
+
+    @Test
+    @DisplayName("Quando consulta paginada e ordenada, deve respeitar ordem e pagina")
+    void findAll_paginado() {
+        repo().save(new Personagem(null, 111L, "Carlos", LocalDate.of(1700, Month.JANUARY, 1), "serie 1"));
+        repo().save(new Personagem(null, 222L, "Ana", LocalDate.of(1902, Month.JANUARY, 1), "serie 2"));
+        repo().save(new Personagem(null, 333L, "Bruno", LocalDate.of(1950, Month.JANUARY, 1), "serie 3"));
+        var pagina = repo().findAll(PageRequest.of(0, 2, Sort.by("nome")));
+        assertEquals(3, pagina.getTotalElements());
+        assertEquals(List.of("Ana", "Bruno"), pagina.getContent().stream().map(Personagem::getNome).toList());
+        var ultima = repo().findAll(PageRequest.of(1, 2, Sort.by("nome")));
+        assertEquals(List.of("Carlos"), ultima.getContent().stream().map(Personagem::getNome).toList());
+    }
+
+    @Test
+    @DisplayName("Quando consulta por exemplo, deve aplicar as regras do matcher")
+    void consultarPorExemplo() {
+        repo().save(new Personagem(null, 111L, "Carlos Silva", LocalDate.of(1700, Month.JANUARY, 1), "serie 1"));
+        repo().save(new Personagem(null, 222L, "Ana Silva", LocalDate.of(1902, Month.JANUARY, 1), "serie 2"));
+        repo().save(new Personagem(null, 333L, "Bruno Souza", LocalDate.of(1950, Month.JANUARY, 1), "serie 2"));
+
+        var serie2 = Example.of(new Personagem(null, null, null, null, "serie 2"));
+        assertEquals(List.of("Ana Silva", "Bruno Souza"), nomes(repo().findAll(serie2, Sort.by("nome"))));
+        assertEquals(2, repo().count(serie2));
+        assertTrue(repo().exists(serie2));
+        assertThrows(IncorrectResultSizeDataAccessException.class, () -> repo().findOne(serie2));
+        assertEquals("Carlos Silva", repo().findOne(Example.of(new Personagem(null, 111L, null, null, null))).orElseThrow().getNome());
+        assertTrue(repo().findOne(Example.of(new Personagem(null, 999L, null, null, null))).isEmpty());
+
+        var silva = Example.of(new Personagem(null, null, "SILVA", null, null),
+                ExampleMatcher.matching().withStringMatcher(ExampleMatcher.StringMatcher.ENDING).withIgnoreCase());
+        assertEquals(List.of("Carlos Silva", "Ana Silva"), nomes(repo().findAll(silva, Sort.by(Sort.Direction.DESC, "nome"))));
+        var pagina = repo().findAll(silva, PageRequest.of(1, 1, Sort.by("nome")));
+        assertEquals(2, pagina.getTotalElements());
+        assertEquals(List.of("Carlos Silva"), nomes(pagina.getContent()));
+
+        var qualquer = Example.of(new Personagem(null, 111L, "Bruno Souza", null, null), ExampleMatcher.matchingAny());
+        assertEquals(List.of("Bruno Souza", "Carlos Silva"), nomes(repo().findAll(qualquer, Sort.by("nome"))));
+    }
+
+    @Test
+    @DisplayName("Quando usa a consulta fluente por exemplo, deve ordenar, paginar e projetar")
+    void consultarPorExemploFluente() {
+        repo().save(new Personagem(null, 111L, "Carlos", LocalDate.of(1700, Month.JANUARY, 1), "serie 1"));
+        repo().save(new Personagem(null, 222L, "Ana", LocalDate.of(1902, Month.JANUARY, 1), "serie 1"));
+        var serie1 = Example.of(new Personagem(null, null, null, null, "serie 1"));
+
+        assertEquals("Ana", repo().findBy(serie1, q -> q.sortBy(Sort.by("nome")).firstValue()).getNome());
+        assertEquals(List.of("Carlos"), repo().findBy(serie1, q -> q.as(SoNome.class).sortBy(Sort.by("nome")).page(PageRequest.of(1, 1)))
+                .map(SoNome::getNome).getContent());
+        assertEquals(2L, repo().<Personagem, Long>findBy(serie1, FluentQuery.FetchableFluentQuery::count));
+    }
+
+    interface SoNome {
+
+        String getNome();
+
+    }
+
+    private static List<String> nomes(List<? extends Personagem> personagens) {
+        return personagens.stream().map(Personagem::getNome).toList();
+    }
+
+}
@@ -0,0 +1,52 @@
+package tech.devinhouse.personagens.repository.journal;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndiceOffHeapTest {
+
+    @Test
+    @DisplayName("Quando recebe insercoes e remocoes aleatorias, deve se comportar como um HashMap")
+    void operacoesAleatorias() {
+        var indice = new IndiceOffHeap(4);
+        Map<Long, Long> esperado = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long chave = random.nextInt(2_000) - 1_000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(ausenteSeNulo(esperado.remove(chave)), indice.remove(chave));
+            } else {
+                long valor = random.nextLong();
+                assertEquals(ausenteSeNulo(esperado.put(chave, valor)), indice.put(chave, valor));
+            }
+            assertEquals(ausenteSeNulo(esperado.get(chave)), indice.get(chave));
+        }
+        assertEquals(esperado.size(), indice.size());
+        for (long chave = -1_000; chave < 1_000; chave++)
+            assertEquals(ausenteSeNulo(esperado.get(chave)), indice.get(chave));
+        Map<Long, Long> percorrido = new HashMap<>();
+        indice.forEach(percorrido::put);
+        assertEquals(esperado, percorrido);
+    }
+
+    @Test
+    @DisplayName("Quando usa a chave reservada, deve recusar a gravacao e tratar como inexistente")
+    void chaveReservada() {
+        var indice = new IndiceOffHeap(4);
+        assertThrows(IllegalArgumentException.class, () -> indice.put(IndiceOffHeap.AUSENTE, 1));
+        assertEquals(IndiceOffHeap.AUSENTE, indice.get(IndiceOffHeap.AUSENTE));
+        assertEquals(IndiceOffHeap.AUSENTE, indice.remove(IndiceOffHeap.AUSENTE));
+        assertEquals(0, indice.size());
+    }
+
+    private static long ausenteSeNulo(Long valor) {
+        return valor == null ? IndiceOffHeap.AUSENTE : valor;
+    }
+
+}
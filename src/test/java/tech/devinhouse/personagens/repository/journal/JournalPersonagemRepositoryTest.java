@@ -0,0 +1,283 @@
+package tech.devinhouse.personagens.repository.journal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.devinhouse.personagens.model.Personagem;
+import tech.devinhouse.personagens.repository.PersonagemRepository;
+import tech.devinhouse.personagens.repository.PersonagemRepositoryContrato;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// contrato do repositorio, mais a recuperacao e a compactacao do journal
+class JournalPersonagemRepositoryTest extends PersonagemRepositoryContrato {
+
+    @TempDir
+    Path diretorio;
+
+    private JournalPersonagemRepository repo;
+
+    @BeforeEach
+    void iniciar() throws IOException {
+        repo = abrir();
+    }
+
+    @AfterEach
+    void encerrar() throws IOException {
+        repo.encerrar();
+    }
+
+    @Override
+    protected PersonagemRepository repo() {
+        return repo;
+    }
+
+    @Test
+    @DisplayName("Quando reabre o journal, deve recuperar inclusoes, alteracoes e exclusoes")
+    void recuperar() throws Exception {
+        var pers1 = repo.save(new Personagem(null, 111L, "Personagem 1", LocalDate.of(1700, Month.JANUARY, 1), "serie 1"));
+        var pers2 = repo.save(new Personagem(null, 222L, "Personagem 2", null, null));
+        pers2.setNome("Ação");
+        repo.save(pers2);
+        repo.deleteById(pers1.getId());
+        repo.encerrar();
+
+        repo = abrir();
+        assertEquals(1, repo.count());
+        assertTrue(repo.findById(pers1.getId()).isEmpty());
+        var recuperado = repo.findByCpf(222L).orElseThrow();
+        assertEquals("Ação", recuperado.getNome());
+        assertNull(recuperado.getDataNascimento());
+        assertNull(recuperado.getSerie());
+        assertTrue(repo.save(new Personagem(null, 333L, "Personagem 3", null, null)).getId() > pers2.getId());
+    }
+
+    @Test
+    @DisplayName("Quando o journal termina com um registro incompleto ou corrompido, deve descartar a partir dele")
+    void recuperar_registroInvalido() throws Exception {
+        repo.save(new Personagem(null, 111L, "Personagem 1", LocalDate.of(1700, Month.JANUARY, 1), "serie 1"));
+        repo.save(new Personagem(null, 222L, "Personagem 2", LocalDate.of(1800, Month.JANUARY, 1), "serie 2"));
+        repo.encerrar();
+
+        // inverte um bit no nome do segundo registro: o crc nao confere mais
+        Path arquivo = diretorio.resolve("personagens.journal");
+        try (var canal = FileChannel.open(arquivo, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            int segundo = Journal.CABECALHO + 8 + lerInt(canal, Journal.CABECALHO);
+            long posicaoNome = segundo + 8 + 25;
+            ByteBuffer b = ByteBuffer.allocate(1);
+            canal.read(b, posicaoNome);
+            canal.write(ByteBuffer.wrap(new byte[]{(byte) (b.get(0) ^ 1)}), posicaoNome);
+        }
+        repo = abrir();
+        assertEquals(1, repo.count());
+        assertTrue(repo.findByCpf(222L).isEmpty());
+
+        // registro com tamanho gravado mas sem o conteudo, como numa queda no meio da escrita
+        repo.save(new Personagem(null, 333L, "Personagem 3", null, "serie 3"));
+        repo.encerrar();
+        try (var canal = FileChannel.open(arquivo, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            int fim = Journal.CABECALHO;
+            for (int tamanho; (tamanho = lerInt(canal, fim)) != 0; )
+                fim += 8 + tamanho;
+            canal.write(ByteBuffer.allocate(4).putInt(0, 50), fim);
+        }
+        repo = abrir();
+        assertEquals(2, repo.count());
+        repo.save(new Personagem(null, 444L, "Personagem 4", null, "serie 4"));
+        repo.encerrar();
+        repo = abrir();
+        assertEquals(3, repo.count());
+    }
+
+    @Test
+    @DisplayName("Quando compacta, deve manter somente os registros vivos e reduzir o arquivo")
+    void compactar() throws Exception {
+        for (long i = 1; i <= 200; i++)
+            repo.save(new Personagem(null, i, "Personagem " + i, LocalDate.of(1900, Month.JANUARY, 1), "serie"));
+        for (long i = 1; i <= 150; i++)
+            repo.deleteById(i);
+        var alterado = repo.findByCpf(200L).orElseThrow();
+        alterado.setNome("Alterado");
+        repo.save(alterado);
+        repo.encerrar();
+        long antes = tamanhoUtil();
+
+        repo = abrir();
+        repo.compactar();
+        assertEquals(50, repo.count());
+        assertEquals("Alterado", repo.findByCpf(200L).orElseThrow().getNome());
+        repo.encerrar();
+        assertTrue(tamanhoUtil() < antes / 3);
+
+        repo = abrir();
+        assertEquals(50, repo.count());
+        assertEquals(201, repo.save(new Personagem(null, 999L, "Novo", null, null)).getId());
+    }
+
+    @Test
+    @DisplayName("Quando compacta durante gravacoes concorrentes, nenhuma gravacao deve travar ou se perder")
+    void compactar_comGravacoesConcorrentes() throws Exception {
+        int threads = 4;
+        int porThread = 300;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long base = t * 10_000L;
+            futuros.add(executor.submit(() -> {
+                for (long i = 1; i <= porThread; i++) {
+                    var pers = repo.save(new Personagem(null, base + i, "Personagem " + i, null, "serie"));
+                    pers.setNome("Alterado " + i);
+                    repo.save(pers);
+                }
+                return null;
+            }));
+        }
+        while (futuros.stream().anyMatch(f -> !f.isDone()))
+            repo.compactar();
+        for (Future<?> futuro : futuros)
+            futuro.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+        assertEquals(threads * porThread, repo.count());
+
+        repo.encerrar();
+        repo = abrir();
+        assertEquals(threads * porThread, repo.count());
+        assertEquals("Alterado 300", repo.findByCpf(30_300L).orElseThrow().getNome());
+    }
+
+    @Test
+    @DisplayName("Quando a compactacao falha, o repositorio deve continuar usando o journal atual")
+    void compactar_falha() throws Exception {
+        repo.save(new Personagem(null, 111L, "Personagem 1", null, "serie 1"));
+        Path temporario = diretorio.resolve("personagens.journal.compactando");
+        Files.createDirectories(temporario.resolve("ocupado"));  // diretorio nao vazio: nao pode ser apagado
+        assertThrows(IOException.class, () -> repo.compactar());
+        repo.save(new Personagem(null, 222L, "Personagem 2", null, "serie 2"));
+        assertEquals(2, repo.count());
+    }
+
+    // compara gravacoes duraveis no journal com inserts em H2 em arquivo; rodar com -Dbenchmark=true
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmark() throws Exception {
+        int quantidade = 20_000;
+        long inicio = System.nanoTime();
+        for (long i = 1; i <= quantidade; i++)
+            repo.save(new Personagem(null, i, "Personagem " + i, LocalDate.of(1900, Month.JANUARY, 1), "serie"));
+        long journal = System.nanoTime() - inicio;
+        inicio = System.nanoTime();
+        for (long i = 1; i <= quantidade; i++)
+            repo.findByCpf(i).orElseThrow();
+        long leituraJournal = System.nanoTime() - inicio;
+        repo.encerrar();
+        repo = new JournalPersonagemRepository(diretorio.resolve("assincrono"), 1, false, 5);
+        repo.iniciar();
+        inicio = System.nanoTime();
+        for (long i = 1; i <= quantidade; i++)
+            repo.save(new Personagem(null, i, "Personagem " + i, LocalDate.of(1900, Month.JANUARY, 1), "serie"));
+        long journalAssincrono = System.nanoTime() - inicio;
+
+        try (var conexao = DriverManager.getConnection("jdbc:h2:" + diretorio.resolve("h2").toAbsolutePath())) {
+            try (Statement st = conexao.createStatement()) {
+                st.execute("create table personagem (id bigint auto_increment primary key, cpf bigint unique, nome varchar(255), data_nascimento date, serie varchar(255))");
+            }
+            inicio = System.nanoTime();
+            try (var ps = conexao.prepareStatement("insert into personagem (cpf, nome, data_nascimento, serie) values (?, ?, ?, ?)")) {
+                for (long i = 1; i <= quantidade; i++) {
+                    ps.setLong(1, i);
+                    ps.setString(2, "Personagem " + i);
+                    ps.setObject(3, LocalDate.of(1900, Month.JANUARY, 1));
+                    ps.setString(4, "serie");
+                    ps.executeUpdate();
+                }
+            }
+            long h2 = System.nanoTime() - inicio;
+            inicio = System.nanoTime();
+            try (var ps = conexao.prepareStatement("select * from personagem where cpf = ?")) {
+                for (long i = 1; i <= quantidade; i++) {
+                    ps.setLong(1, i);
+                    try (var rs = ps.executeQuery()) {
+                        assertTrue(rs.next());
+                    }
+                }
+            }
+            long leituraH2 = System.nanoTime() - inicio;
+            System.out.printf("journal: %d gravacoes em %d ms, %d leituras em %d ms%n", quantidade, journal / 1_000_000, quantidade, leituraJournal / 1_000_000);
+            System.out.printf("journal sem aguardar o fsync: %d gravacoes em %d ms%n", quantidade, journalAssincrono / 1_000_000);
+            System.out.printf("h2:      %d gravacoes em %d ms, %d leituras em %d ms%n", quantidade, h2 / 1_000_000, quantidade, leituraH2 / 1_000_000);
+        }
+    }
+
+    @Test
+    @DisplayName("Quando a transacao em volta eh desfeita, as gravacoes devem ser desfeitas tambem no disco")
+    void rollback_compensaGravacoes() throws Exception {
+        var existente = repo.save(new Personagem(null, 111L, "Personagem 1", null, "serie 1"));
+        var removido = repo.save(new Personagem(null, 222L, "Personagem 2", null, "serie 2"));
+        var transacao = new TransactionTemplate(new DataSourceTransactionManager(
+                new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID())));
+        transacao.executeWithoutResult(status -> {
+            repo.save(new Personagem(null, 333L, "Novo", null, "serie 3"));
+            var alterado = repo.findById(existente.getId()).orElseThrow();
+            alterado.setCpf(444L);
+            alterado.setNome("Alterado");
+            repo.save(alterado);
+            repo.deleteById(removido.getId());
+            status.setRollbackOnly();
+        });
+        for (int i = 0; i < 2; i++) {
+            assertEquals(2, repo.count());
+            assertEquals("Personagem 1", repo.findByCpf(111L).orElseThrow().getNome());
+            assertEquals(removido.getId(), repo.findByCpf(222L).orElseThrow().getId());
+            assertFalse(repo.existsPersonagemByCpf(333L));
+            assertFalse(repo.existsPersonagemByCpf(444L));
+            repo.encerrar();
+            repo = abrir();
+        }
+    }
+
+    private JournalPersonagemRepository abrir() throws IOException {
+        var repositorio = new JournalPersonagemRepository(diretorio, 1, true, 5);
+        repositorio.iniciar();
+        return repositorio;
+    }
+
+    private long tamanhoUtil() throws IOException {
+        try (var canal = FileChannel.open(diretorio.resolve("personagens.journal"), StandardOpenOption.READ)) {
+            int fim = Journal.CABECALHO;
+            for (int tamanho; (tamanho = lerInt(canal, fim)) != 0; )
+                fim += 8 + tamanho;
+            return fim;
+        }
+    }
+
+    private static int lerInt(FileChannel canal, long posicao) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(4);
+        canal.read(b, posicao);
+        return b.getInt(0);
+    }
+
+}
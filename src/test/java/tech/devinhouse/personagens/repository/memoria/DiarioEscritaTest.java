@@ -0,0 +1,119 @@
+package tech.devinhouse.personagens.repository.memoria;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiarioEscritaTest {
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    @DisplayName("Quando a gravacao do diario falha, sincronizar deve falhar e os comandos devem ser gravados depois")
+    void falhaGravacao_gravaDeNovo() throws Exception {
+        var diario = new DiarioFalho(diretorio);
+        diario.iniciar();
+        diario.gravar(registro(1, "Personagem 1"));
+        diario.sincronizar();
+
+        diario.falhar = true;
+        diario.gravar(registro(2, "Personagem 2"));
+        diario.excluir(1);
+        assertThrows(IOException.class, diario::sincronizar);
+
+        diario.falhar = false;
+        diario.gravar(registro(3, "Personagem 3"));
+        diario.sincronizar();
+        diario.close();
+
+        assertEquals(Map.of(2L, "Personagem 2", 3L, "Personagem 3"), recuperar());
+    }
+
+    @Test
+    @DisplayName("Quando a gravacao do snapshot falha, o diario deve continuar valido e o snapshot deve ser gravado depois")
+    void falhaSnapshot_gravaDeNovo() throws Exception {
+        var diario = new DiarioFalho(diretorio);
+        diario.iniciar();
+        diario.gravar(registro(1, "Personagem 1"));
+        diario.sincronizar();
+
+        diario.falhar = true;
+        diario.snapshot(List.of(registro(1, "Personagem 1"), registro(2, "Personagem 2")));
+        diario.gravar(registro(2, "Personagem 2"));
+        assertThrows(IOException.class, diario::sincronizar);
+
+        diario.falhar = false;
+        diario.sincronizar();
+        diario.close();
+
+        assertEquals(Map.of(1L, "Personagem 1", 2L, "Personagem 2"), recuperar());
+    }
+
+    private Map<Long, String> recuperar() throws IOException {
+        Map<Long, String> nomes = new TreeMap<>();
+        new DiarioEscrita(diretorio).recuperar(r -> nomes.put(r.id(), r.nome()), nomes::remove);
+        return nomes;
+    }
+
+    private static Registro registro(long id, String nome) {
+        return new Registro(id, id * 111, nome, LocalDate.of(1900, 1, 1), "serie");
+    }
+
+    // grava metade de cada bloco e falha enquanto falhar estiver ligado, como um disco cheio
+    private static class DiarioFalho extends DiarioEscrita {
+
+        volatile boolean falhar;
+
+        DiarioFalho(Path diretorio) throws IOException {
+            super(diretorio, 10);
+        }
+
+        @Override
+        OutputStream escreverEm(FileChannel canal) throws IOException {
+            if (falhar)
+                throw new IOException("disco indisponivel");
+            return new FilterOutputStream(super.escreverEm(canal)) {
+                @Override
+                public void write(int b) throws IOException {
+                    verificar();
+                    out.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int inicio, int tamanho) throws IOException {
+                    if (falhar) {
+                        out.write(b, inicio, tamanho / 2);
+                        out.flush();
+                    }
+                    verificar();
+                    out.write(b, inicio, tamanho);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    verificar();
+                    out.flush();
+                }
+            };
+        }
+
+        private void verificar() throws IOException {
+            if (falhar)
+                throw new IOException("disco indisponivel");
+        }
+    }
+
+}
@@ -0,0 +1,31 @@
+package tech.devinhouse.personagens.repository.memoria;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapaLongTest {
+
+    @Test
+    @DisplayName("Quando recebe insercoes e remocoes aleatorias, deve se comportar como um HashMap")
+    void operacoesAleatorias() {
+        var mapa = new MapaLong<String>(4);
+        Map<Long, String> esperado = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long chave = random.nextInt(2_000) - 1_000;
+            if (random.nextInt(3) == 0)
+                assertEquals(esperado.remove(chave), mapa.remove(chave));
+            else
+                assertEquals(esperado.put(chave, "v" + i), mapa.put(chave, "v" + i));
+        }
+        assertEquals(esperado.size(), mapa.size());
+        esperado.forEach((chave, valor) -> assertEquals(valor, mapa.get(chave)));
+    }
+
+}
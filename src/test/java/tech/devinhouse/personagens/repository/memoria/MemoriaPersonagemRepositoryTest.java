@@ -0,0 +1,127 @@
+package tech.devinhouse.personagens.repository.memoria;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.devinhouse.personagens.model.Personagem;
+import tech.devinhouse.personagens.repository.PersonagemRepository;
+import tech.devinhouse.personagens.repository.PersonagemRepositoryContrato;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// contrato do repositorio, mais a recuperacao do diario
+class MemoriaPersonagemRepositoryTest extends PersonagemRepositoryContrato {
+
+    @TempDir
+    Path diretorio;
+
+    private MemoriaPersonagemRepository repo;
+
+    @BeforeEach
+    void iniciar() throws IOException {
+        repo = abrir();
+    }
+
+    @AfterEach
+    void encerrar() throws IOException {
+        repo.encerrar();
+    }
+
+    @Override
+    protected PersonagemRepository repo() {
+        return repo;
+    }
+
+    @Test
+    @DisplayName("Quando o registro lido eh alterado sem salvar, o repositorio nao deve mudar")
+    void findById_devolveCopia() {
+        var pers = repo.save(new Personagem(null, 111L, "Personagem 1", LocalDate.of(1700, Month.JANUARY, 1), "serie 1"));
+        repo.findById(pers.getId()).orElseThrow().setNome("Alterado");
+        assertEquals("Personagem 1", repo.findById(pers.getId()).orElseThrow().getNome());
+    }
+
+    @Test
+    @DisplayName("Quando reinicia, deve recuperar os dados do snapshot e do diario")
+    void recuperar() throws Exception {
+        var pers1 = repo.save(new Personagem(null, 111L, "Personagem 1", LocalDate.of(1700, Month.JANUARY, 1), "serie 1"));
+        repo.save(new Personagem(null, 222L, "Personagem 2", null, null));
+        repo.snapshot();
+        var pers3 = repo.save(new Personagem(null, 333L, "Personagem 3", LocalDate.of(1950, Month.JANUARY, 1), "serie 3"));
+        repo.deleteById(pers1.getId());
+        repo.sincronizar();
+        repo.encerrar();
+
+        repo = abrir();
+        assertEquals(2, repo.count());
+        assertTrue(repo.findById(pers1.getId()).isEmpty());
+        assertEquals("Personagem 3", repo.findByCpf(333L).orElseThrow().getNome());
+        var novo = repo.save(new Personagem(null, 444L, "Personagem 4", null, "serie 4"));
+        assertTrue(novo.getId() > pers3.getId());
+    }
+
+    @Test
+    @DisplayName("Quando o diario termina com um registro incompleto, deve descartar somente este registro")
+    void recuperar_diarioIncompleto() throws Exception {
+        repo.save(new Personagem(null, 111L, "Personagem 1", LocalDate.of(1700, Month.JANUARY, 1), "serie 1"));
+        repo.sincronizar();
+        repo.interromper();
+        Files.write(diretorio.resolve("personagens.log"), new byte[]{'G', 0, 0, 0}, StandardOpenOption.APPEND);
+
+        repo = abrir();
+        assertEquals(1, repo.count());
+        repo.save(new Personagem(null, 222L, "Personagem 2", null, "serie 2"));
+        repo.sincronizar();
+        repo.interromper();
+
+        repo = abrir();
+        assertEquals(2, repo.count());
+    }
+
+    @Test
+    @DisplayName("Quando a transacao em volta eh desfeita, as gravacoes devem ser desfeitas tambem no disco")
+    void rollback_compensaGravacoes() throws Exception {
+        var existente = repo.save(new Personagem(null, 111L, "Personagem 1", null, "serie 1"));
+        var removido = repo.save(new Personagem(null, 222L, "Personagem 2", null, "serie 2"));
+        var transacao = new TransactionTemplate(new DataSourceTransactionManager(
+                new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID())));
+        transacao.executeWithoutResult(status -> {
+            repo.save(new Personagem(null, 333L, "Novo", null, "serie 3"));
+            var alterado = repo.findById(existente.getId()).orElseThrow();
+            alterado.setCpf(444L);
+            alterado.setNome("Alterado");
+            repo.save(alterado);
+            repo.deleteById(removido.getId());
+            status.setRollbackOnly();
+        });
+        repo.sincronizar();
+        for (int i = 0; i < 2; i++) {
+            assertEquals(2, repo.count());
+            assertEquals("Personagem 1", repo.findByCpf(111L).orElseThrow().getNome());
+            assertEquals(removido.getId(), repo.findByCpf(222L).orElseThrow().getId());
+            assertFalse(repo.existsPersonagemByCpf(333L));
+            assertFalse(repo.existsPersonagemByCpf(444L));
+            repo.encerrar();
+            repo = abrir();
+        }
+    }
+
+    private MemoriaPersonagemRepository abrir() throws IOException {
+        var repositorio = new MemoriaPersonagemRepository(diretorio);
+        repositorio.iniciar();
+        return repositorio;
+    }
+
+}
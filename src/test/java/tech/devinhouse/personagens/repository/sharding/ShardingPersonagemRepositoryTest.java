@@ -0,0 +1,252 @@
+package tech.devinhouse.personagens.repository.sharding;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.devinhouse.personagens.model.Personagem;
+import tech.devinhouse.personagens.repository.PersonagemRepository;
+import tech.devinhouse.personagens.repository.PersonagemRepositoryContrato;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// contrato do repositorio, mais roteamento, paginacao intercalada e unicidade do cpf
+class ShardingPersonagemRepositoryTest extends PersonagemRepositoryContrato {
+
+    private static final int SHARDS = 3;
+
+    private String banco;
+
+    private ShardingPersonagemRepository repo;
+
+    @BeforeEach
+    void iniciar() {
+        banco = "sharding-" + UUID.randomUUID();
+        repo = abrir(ChaveShard.SERIE);
+    }
+
+    @AfterEach
+    void encerrar() {
+        repo.encerrar();
+    }
+
+    @Override
+    protected PersonagemRepository repo() {
+        return repo;
+    }
+
+    @Test
+    @DisplayName("Quando insere por serie, todos os registros da mesma serie devem ir para o mesmo shard e as listas devem vir por id")
+    void roteamentoPorSerie() {
+        List<Personagem> inseridos = new ArrayList<>();
+        for (int i = 0; i < 30; i++)
+            inseridos.add(repo.save(new Personagem(null, 1000L + i, "Personagem " + i, null, "serie " + i % 5)));
+        var shardsPorSerie = inseridos.stream().collect(Collectors.groupingBy(Personagem::getSerie,
+                Collectors.mapping(p -> p.getId() % SHARDS, Collectors.toSet())));
+        shardsPorSerie.values().forEach(shards -> assertEquals(1, shards.size()));
+
+        List<Personagem> todos = repo.findAll();
+        assertEquals(30, todos.size());
+        assertEquals(todos.stream().sorted(Comparator.comparing(Personagem::getId)).toList(), todos);
+        assertEquals(30, repo.count());
+        assertEquals("Personagem 7", repo.findById(inseridos.get(7).getId()).orElseThrow().getNome());
+    }
+
+    @Test
+    @DisplayName("Quando consulta paginada e ordenada, as paginas intercaladas dos shards devem seguir a ordem global")
+    void findAll_paginadoIntercalado() {
+        for (int i = 0; i < 25; i++)
+            repo.save(new Personagem(null, 2000L + i, i % 4 == 0 ? null : "Nome " + (char) ('A' + (i * 7) % 26),
+                    null, "serie " + i));
+        Sort sort = Sort.by(Sort.Order.desc("nome"), Sort.Order.asc("cpf"));
+        List<Personagem> esperado = repo.findAll(sort);
+        assertEquals(25, esperado.size());
+        assertNull(esperado.get(24).getNome());  // nulos por ultimo na ordem decrescente
+
+        List<Personagem> paginado = new ArrayList<>();
+        for (int pagina = 0; pagina < 5; pagina++) {
+            var resultado = repo.findAll(PageRequest.of(pagina, 6, sort));
+            assertEquals(25, resultado.getTotalElements());
+            paginado.addAll(resultado.getContent());
+        }
+        assertEquals(esperado, paginado);
+    }
+
+    @Test
+    @DisplayName("Quando ha mais consultas paginadas simultaneas que threads no pool, todas devem terminar")
+    void findAll_paginadoConcorrente() throws Exception {
+        for (int i = 0; i < 10; i++)
+            repo.save(new Personagem(null, 3000L + i, "Nome " + i, null, "serie " + i));
+        ExecutorService clientes = Executors.newFixedThreadPool(SHARDS * 4);
+        List<Future<Long>> futuros = new ArrayList<>();
+        for (int i = 0; i < SHARDS * 20; i++)
+            futuros.add(clientes.submit(() -> repo.findAll(PageRequest.of(0, 3, Sort.by("nome"))).getTotalElements()));
+        for (Future<Long> futuro : futuros)
+            assertEquals(10, futuro.get(10, TimeUnit.SECONDS));
+        clientes.shutdown();
+    }
+
+    @Test
+    @DisplayName("Quando o cpf ja existe em outro shard, deve recusar a insercao e a alteracao")
+    void unicidadeCpf() {
+        var pers1 = repo.save(new Personagem(null, 111L, "Personagem 1", null, "serie 1"));
+        var pers2 = repo.save(new Personagem(null, 222L, "Personagem 2", null, "serie 2"));
+        assertNotEquals(pers1.getId() % SHARDS, pers2.getId() % SHARDS);
+        assertThrows(DuplicateKeyException.class, () -> repo.save(new Personagem(null, 111L, "Outro", null, "serie 2")));
+        assertEquals(2, repo.count());
+
+        var alterado = repo.findById(pers2.getId()).orElseThrow();
+        alterado.setCpf(111L);
+        assertThrows(DuplicateKeyException.class, () -> repo.save(alterado));
+        assertEquals(222L, repo.findById(pers2.getId()).orElseThrow().getCpf());
+
+        alterado.setCpf(999L);
+        repo.save(alterado);
+        assertFalse(repo.existsPersonagemByCpf(222L));
+        assertEquals(pers2.getId(), repo.findByCpf(999L).orElseThrow().getId());
+        repo.delete(alterado);
+        assertFalse(repo.existsPersonagemByCpf(999L));
+        repo.save(new Personagem(null, 999L, "Reutiliza o cpf", null, "serie 3"));
+        assertTrue(repo.existsPersonagemByCpf(999L));
+    }
+
+    @Test
+    @DisplayName("Quando o indice aponta para um registro que nao existe mais, deve ignorar e substituir a entrada")
+    void indiceCpfOrfao() {
+        var pers = repo.save(new Personagem(null, 111L, "Personagem 1", null, "serie 1"));
+        new JdbcTemplate(dataSource(pers.getId() % SHARDS)).update("DELETE FROM personagem WHERE id = ?", pers.getId());
+        assertTrue(repo.findByCpf(111L).isEmpty());
+        var novo = repo.save(new Personagem(null, 111L, "Personagem 2", null, "serie 2"));
+        assertEquals(novo.getId(), repo.findByCpf(111L).orElseThrow().getId());
+    }
+
+    @Test
+    @DisplayName("Quando o indice tem uma reserva pendente, so deve substitui-la depois de expirada")
+    void indiceCpfReservaPendente() {
+        var indice = new JdbcTemplate(new DriverManagerDataSource(url("indice")));
+        long inexistente = 999_999;
+        indice.update("INSERT INTO personagem_cpf (cpf, id, confirmada, reservada_em) VALUES (111, ?, FALSE, ?)",
+                inexistente, System.currentTimeMillis());
+        assertThrows(DuplicateKeyException.class, () -> repo.save(new Personagem(null, 111L, "Personagem 1", null, "serie 1")));
+
+        indice.update("UPDATE personagem_cpf SET reservada_em = 0 WHERE cpf = 111");
+        var pers = repo.save(new Personagem(null, 111L, "Personagem 1", null, "serie 1"));
+        assertEquals(pers.getId(), repo.findByCpf(111L).orElseThrow().getId());
+    }
+
+    @Test
+    @DisplayName("Quando varias insercoes concorrentes usam o mesmo cpf em shards diferentes, somente uma deve ser gravada")
+    void unicidadeCpf_concorrente() throws Exception {
+        int threads = 6;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (long cpf = 5000; cpf < 5030; cpf++) {
+            CyclicBarrier largada = new CyclicBarrier(threads);
+            List<Future<Boolean>> futuros = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Personagem personagem = new Personagem(null, cpf, "Personagem " + t, null, "serie " + t);
+                futuros.add(executor.submit(() -> {
+                    largada.await();
+                    try {
+                        repo.save(personagem);
+                        return true;
+                    } catch (DuplicateKeyException e) {
+                        return false;
+                    }
+                }));
+            }
+            int gravados = 0;
+            for (Future<Boolean> futuro : futuros)
+                gravados += futuro.get(10, TimeUnit.SECONDS) ? 1 : 0;
+            long comCpf = cpf;
+            assertEquals(1, gravados);
+            assertEquals(1, repo.findAll().stream().filter(p -> p.getCpf() == comCpf).count());
+        }
+        executor.shutdown();
+        var shardsDisputados = IntStream.range(0, threads)
+                .mapToObj(t -> ChaveShard.SERIE.shard(new Personagem(null, null, null, null, "serie " + t), SHARDS))
+                .collect(Collectors.toSet());
+        assertTrue(shardsDisputados.size() > 1);
+    }
+
+    @Test
+    @DisplayName("Quando a transacao em volta eh desfeita, as gravacoes nos shards e no indice devem ser desfeitas")
+    void rollback_compensaGravacoes() {
+        var existente = repo.save(new Personagem(null, 111L, "Personagem 1", null, "serie 1"));
+        var removido = repo.save(new Personagem(null, 222L, "Personagem 2", null, "serie 2"));
+        var transacao = new TransactionTemplate(new DataSourceTransactionManager(new DriverManagerDataSource(url("tx"))));
+        transacao.executeWithoutResult(status -> {
+            repo.save(new Personagem(null, 333L, "Novo", null, "serie 3"));
+            var alterado = repo.findById(existente.getId()).orElseThrow();
+            alterado.setCpf(444L);
+            alterado.setNome("Alterado");
+            repo.save(alterado);
+            repo.deleteById(removido.getId());
+            status.setRollbackOnly();
+        });
+        assertEquals(2, repo.count());
+        assertEquals("Personagem 1", repo.findByCpf(111L).orElseThrow().getNome());
+        assertEquals(removido.getId(), repo.findByCpf(222L).orElseThrow().getId());
+        assertFalse(repo.existsPersonagemByCpf(333L));
+        assertFalse(repo.existsPersonagemByCpf(444L));
+        repo.save(new Personagem(null, 444L, "Cpf livre", null, "serie 4"));
+    }
+
+    @Test
+    @DisplayName("Quando a abertura de um dos bancos falha, deve fechar os pools ja abertos")
+    void construtor_falhaFechaPools() {
+        String outro = "sharding-" + UUID.randomUUID();
+        String urlShard = "jdbc:h2:mem:" + outro + "-{n};DB_CLOSE_ON_EXIT=FALSE";
+        assertThrows(RuntimeException.class, () -> new ShardingPersonagemRepository(SHARDS, urlShard,
+                "jdbc:h2:mem:" + outro + "-indice;IFEXISTS=TRUE", ChaveShard.SERIE, 2, Duration.ofMinutes(1)));
+        // banco em memoria sem conexoes abertas deixa de existir: a tabela criada pelo shard 0 sumiu
+        var shard0 = new JdbcTemplate(new DriverManagerDataSource(urlShard.replace("{n}", "0")));
+        assertEquals(0, shard0.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'PERSONAGEM'", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Quando distribui por cpf, os registros devem se espalhar entre os shards")
+    void roteamentoPorCpf() {
+        repo.encerrar();
+        banco = "sharding-" + UUID.randomUUID();
+        repo = abrir(ChaveShard.CPF);
+        for (long cpf = 1; cpf <= 60; cpf++)
+            repo.save(new Personagem(null, cpf, "Personagem " + cpf, null, "mesma serie"));
+        var porShard = repo.findAll().stream().collect(Collectors.groupingBy(p -> p.getId() % SHARDS, Collectors.counting()));
+        assertEquals(SHARDS, porShard.size());
+        assertEquals(60, repo.count());
+    }
+
+    private ShardingPersonagemRepository abrir(ChaveShard chave) {
+        return new ShardingPersonagemRepository(SHARDS, url("{n}"), url("indice"), chave, 2, Duration.ofMinutes(1));
+    }
+
+    private String url(String sufixo) {
+        return "jdbc:h2:mem:" + banco + "-" + sufixo + ";DB_CLOSE_ON_EXIT=FALSE";
+    }
+
+    private DriverManagerDataSource dataSource(long shard) {
+        return new DriverManagerDataSource(url(String.valueOf(shard)));
+    }
+
+}
@@ -0,0 +1,80 @@
+package tech.devinhouse.personagens.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import tech.devinhouse.personagens.dto.FaixaIdadeResponse;
+import tech.devinhouse.personagens.model.Personagem;
+import tech.devinhouse.personagens.model.PersonagemEvento;
+import tech.devinhouse.personagens.model.TipoEvento;
+import tech.devinhouse.personagens.repository.PersonagemRepository;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndiceDataNascimentoTest {
+
+    private final LocalDate hoje = LocalDate.of(2023, Month.JUNE, 1);
+
+    @Test
+    @DisplayName("Quando nao ha personagens, o histograma deve ser vazio")
+    void histograma_vazio() {
+        assertTrue(new IndiceDataNascimento().histograma(10, hoje).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Quando ha personagens, deve agrupar por faixa de idade respeitando aniversarios")
+    void histograma() {
+        var indice = new IndiceDataNascimento();
+        indice.atualizar(1L, hoje.minusYears(5));
+        indice.atualizar(2L, hoje.minusYears(10).plusDays(1));  // ainda 9 anos
+        indice.atualizar(3L, hoje.minusYears(10));              // completa 10 anos hoje
+        indice.atualizar(4L, hoje.minusYears(35));
+        List<FaixaIdadeResponse> histograma = indice.histograma(10, hoje);
+        assertEquals(4, histograma.size());
+        assertEquals(new FaixaIdadeResponse(0, 9, 2), histograma.get(0));
+        assertEquals(new FaixaIdadeResponse(10, 19, 1), histograma.get(1));
+        assertEquals(new FaixaIdadeResponse(20, 29, 0), histograma.get(2));
+        assertEquals(new FaixaIdadeResponse(30, 39, 1), histograma.get(3));
+    }
+
+    @Test
+    @DisplayName("Quando um personagem eh alterado ou excluido, o indice deve refletir somente o estado atual")
+    void atualizar_remover() {
+        var indice = new IndiceDataNascimento();
+        indice.atualizar(1L, hoje.minusYears(5));
+        indice.atualizar(1L, hoje.minusYears(5));  // evento reaplicado
+        indice.atualizar(2L, hoje.minusYears(15));
+        indice.atualizar(2L, hoje.minusYears(25));
+        indice.remover(1L);
+        List<FaixaIdadeResponse> histograma = indice.histograma(10, hoje);
+        assertEquals(List.of(new FaixaIdadeResponse(0, 9, 0), new FaixaIdadeResponse(10, 19, 0), new FaixaIdadeResponse(20, 29, 1)), histograma);
+    }
+
+    @Test
+    @DisplayName("Quando uma exclusao chega durante a carga, deve ser aplicada depois dela e nao ressuscitar o registro")
+    void carregar_exclusaoConcorrente() throws InterruptedException {
+        var indice = new IndiceDataNascimento();
+        var personagem = new Personagem(1L, 11111111111L, "James Kirk", hoje.minusYears(5), "Star Trek");
+        var exclusao = new PersonagemEvento(TipoEvento.EXCLUSAO, personagem);
+        var relay = new Thread(() -> indice.publicar(exclusao));
+        var repo = Mockito.mock(PersonagemRepository.class);
+        Mockito.when(repo.findAll()).thenAnswer(invocacao -> {
+            relay.start();  // o relay entrega a exclusao depois de a leitura ja ter visto o registro
+            while (relay.getState() != Thread.State.BLOCKED && relay.getState() != Thread.State.TERMINATED)
+                Thread.onSpinWait();
+            return List.of(personagem);
+        });
+        ReflectionTestUtils.setField(indice, "repo", repo);
+        ReflectionTestUtils.setField(indice, "transactionManager", Mockito.mock(PlatformTransactionManager.class));
+        indice.carregar();
+        relay.join();
+        assertTrue(indice.histograma(10, hoje).isEmpty());
+    }
+
+}
@@ -0,0 +1,198 @@
+package tech.devinhouse.personagens.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tech.devinhouse.personagens.model.Personagem;
+import tech.devinhouse.personagens.model.PersonagemEvento;
+import tech.devinhouse.personagens.model.TipoEvento;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Pattern;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersonagemBroadcasterTest {
+
+    private final Queue<EmissorTeste> emissores = new ArrayDeque<>();
+
+    private final PersonagemBroadcaster broadcaster = new PersonagemBroadcaster(2) {
+        @Override
+        SseEmitter criarEmitter() {
+            return emissores.remove();
+        }
+    };
+
+    {
+        ReflectionTestUtils.setField(broadcaster, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(broadcaster, "modelMapper", new ModelMapper());
+        ReflectionTestUtils.setField(broadcaster, "tamanhoBuffer", 4);
+    }
+
+    @AfterEach
+    void encerrar() {
+        broadcaster.encerrar();
+    }
+
+    @Test
+    @DisplayName("Quando publica varios eventos, cada assinante deve receber o snapshot e os eventos na ordem")
+    void publicar_entregaEmOrdem() throws Exception {
+        ReflectionTestUtils.setField(broadcaster, "tamanhoBuffer", 64);
+        var primeiro = assinar(new EmissorTeste());
+        var segundo = assinar(new EmissorTeste());
+        for (long id = 1; id <= 50; id++)
+            broadcaster.publicar(evento(id));
+        aguardar(() -> primeiro.ids().size() == 50 && segundo.ids().size() == 50);
+        List<Long> esperado = LongStream.rangeClosed(1, 50).boxed().toList();
+        assertEquals(esperado, primeiro.ids());
+        assertEquals(esperado, segundo.ids());
+        assertEquals("snapshot", primeiro.nomes().get(0));
+        assertEquals("insercao", primeiro.nomes().get(1));
+        assertEquals(2, broadcaster.getQuantidadeAssinantes());
+    }
+
+    @Test
+    @DisplayName("Quando o buffer de um assinante lento enche, somente ele deve ser removido")
+    void publicar_assinanteLentoRemovido() throws Exception {
+        var lento = assinar(new EmissorTeste());
+        var rapido = assinar(new EmissorTeste());
+        var liberar = new CountDownLatch(1);
+        lento.bloqueio = liberar;
+
+        broadcaster.publicar(evento(1));
+        aguardar(() -> lento.bloqueado);  // o primeiro evento ja saiu da fila e esta preso no envio
+        for (long id = 2; id <= 6; id++) {
+            broadcaster.publicar(evento(id));
+            int recebidos = (int) id;
+            aguardar(() -> rapido.ids().size() == recebidos);  // so o lento acumula eventos
+        }
+
+        assertEquals(1, broadcaster.getQuantidadeAssinantes());
+        assertTrue(lento.concluido);
+        liberar.countDown();
+        assertEquals(LongStream.rangeClosed(1, 6).boxed().toList(), rapido.ids());
+        assertFalse(rapido.concluido);
+    }
+
+    @Test
+    @DisplayName("Quando o envio para um assinante falha, ele deve ser removido")
+    void publicar_falhaEnvioRemove() throws Exception {
+        var falho = assinar(new EmissorTeste());
+        var saudavel = assinar(new EmissorTeste());
+        falho.falhar = true;
+        broadcaster.publicar(evento(1));
+        aguardar(() -> broadcaster.getQuantidadeAssinantes() == 1);
+        aguardar(() -> saudavel.ids().size() == 1);
+        assertTrue(falho.concluido);
+        broadcaster.publicar(evento(2));
+        aguardar(() -> saudavel.ids().size() == 2);
+        assertTrue(falho.ids().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Quando retoma de um id, deve reenviar os eventos posteriores do outbox e seguir ao vivo sem repetir")
+    void retomar() throws Exception {
+        List<PersonagemEvento> outbox = LongStream.rangeClosed(1, 5).mapToObj(PersonagemBroadcasterTest::evento).toList();
+        var emissor = new EmissorTeste();
+        emissores.add(emissor);
+        broadcaster.retomar(2, desde -> {
+            if (desde == 2)
+                broadcaster.publicar(evento(4));  // entregue pelo relay enquanto a leitura do outbox acontece
+            return outbox.stream().filter(e -> e.getId() > desde).limit(2).toList();
+        });
+        broadcaster.publicar(evento(6));
+        aguardar(() -> emissor.ids().size() == 4);
+        assertEquals(List.of(3L, 4L, 5L, 6L), emissor.ids());
+        assertFalse(emissor.nomes().contains("snapshot"));
+    }
+
+    private EmissorTeste assinar(EmissorTeste emissor) {
+        emissores.add(emissor);
+        assertSame(emissor, broadcaster.assinar(List::of));
+        return emissor;
+    }
+
+    private static PersonagemEvento evento(long id) {
+        var personagem = new Personagem(id, id * 111, "Personagem " + id, LocalDate.of(1900, 1, 1), "serie");
+        var evento = new PersonagemEvento(TipoEvento.INSERCAO, personagem);
+        evento.setId(id);
+        return evento;
+    }
+
+    private static void aguardar(BooleanSupplier condicao) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condicao.getAsBoolean()) {
+            assertTrue(System.nanoTime() < limite, "condicao nao atingida no tempo");
+            Thread.sleep(5);
+        }
+    }
+
+    // guarda os quadros enviados em vez de escrever na resposta; pode travar ou falhar o envio de eventos
+    private static class EmissorTeste extends SseEmitter {
+
+        private static final Pattern ID = Pattern.compile("^id:(\\d+)$", Pattern.MULTILINE);
+
+        private static final Pattern NOME = Pattern.compile("^event:(\\w+)$", Pattern.MULTILINE);
+
+        private final List<String> quadros = Collections.synchronizedList(new ArrayList<>());
+
+        volatile CountDownLatch bloqueio;
+
+        volatile boolean bloqueado;
+
+        volatile boolean falhar;
+
+        volatile boolean concluido;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            var texto = new StringBuilder();
+            builder.build().forEach(d -> texto.append(d.getData()));
+            if (bloqueio != null) {
+                bloqueado = true;
+                try {
+                    bloqueio.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            if (falhar)
+                throw new IOException("conexao encerrada");
+            quadros.add(texto.toString());
+        }
+
+        @Override
+        public void complete() {
+            concluido = true;
+            super.complete();
+        }
+
+        List<Long> ids() {
+            synchronized (quadros) {
+                return quadros.stream().map(ID::matcher).filter(m -> m.find()).map(m -> Long.valueOf(m.group(1))).toList();
+            }
+        }
+
+        List<String> nomes() {
+            synchronized (quadros) {
+                return quadros.stream().map(NOME::matcher).filter(m -> m.find()).map(m -> m.group(1)).toList();
+            }
+        }
+
+    }
+
+}
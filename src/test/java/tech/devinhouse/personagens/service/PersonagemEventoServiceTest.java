@@ -0,0 +1,161 @@
+package tech.devinhouse.personagens.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import tech.devinhouse.personagens.model.CursorSink;
+import tech.devinhouse.personagens.model.PersonagemEvento;
+import tech.devinhouse.personagens.model.TipoEvento;
+import tech.devinhouse.personagens.repository.CursorSinkRepository;
+import tech.devinhouse.personagens.repository.PersonagemEventoRepository;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+
+@ExtendWith(MockitoExtension.class)
+class PersonagemEventoServiceTest {
+
+    @Mock
+    private PersonagemEventoRepository repo;
+
+    @Mock
+    private CursorSinkRepository cursorRepo;
+
+    @InjectMocks
+    private PersonagemEventoService service;
+
+    private final List<PersonagemEvento> eventos = new ArrayList<>();
+
+    private final Map<String, CursorSink> cursores = new HashMap<>();
+
+    private final SinkFalho saudavel = new SinkFalho("saudavel", 0);
+
+    private final SinkFalho falho = new SinkFalho("falho", 2);
+
+    @BeforeEach
+    void setUp() {
+        for (long id = 1; id <= 3; id++)
+            eventos.add(evento(id, LocalDateTime.now()));
+        ReflectionTestUtils.setField(service, "sinks", List.of(saudavel, falho));
+        ReflectionTestUtils.setField(service, "janelaLacuna", 60_000L);
+        Mockito.when(repo.findTop100ByIdGreaterThanOrderByIdAsc(anyLong())).thenAnswer(inv -> {
+            long desde = inv.getArgument(0);
+            return eventos.stream().filter(e -> e.getId() > desde).toList();
+        });
+        // lenient: o teste do feed nao passa pelos cursores
+        Mockito.lenient().when(cursorRepo.findById(anyString()))
+                .thenAnswer(inv -> Optional.ofNullable(cursores.get(inv.<String>getArgument(0))).map(c -> new CursorSink(c.getNome(), c.getUltimoEvento())));
+        Mockito.lenient().when(cursorRepo.save(any())).thenAnswer(inv -> {
+            CursorSink cursor = inv.getArgument(0);
+            cursores.put(cursor.getNome(), new CursorSink(cursor.getNome(), cursor.getUltimoEvento()));
+            return cursor;
+        });
+    }
+
+    @Test
+    @DisplayName("Quando um sink falha, os outros nao devem receber eventos repetidos e o falho deve retomar do proprio cursor")
+    void publicarPendentes_falhaParcial() {
+        assertEquals(4, service.publicarPendentes());  // 3 no saudavel, 1 no falho antes da falha
+        assertEquals(List.of(1L, 2L, 3L), saudavel.recebidos);
+        assertEquals(List.of(1L), falho.recebidos);
+        Mockito.verify(repo).marcarPublicadosAte(1L);
+
+        assertEquals(2, service.publicarPendentes());
+        assertEquals(List.of(1L, 2L, 3L), saudavel.recebidos);
+        assertEquals(List.of(1L, 2L, 3L), falho.recebidos);
+        Mockito.verify(repo).marcarPublicadosAte(3L);
+
+        assertEquals(0, service.publicarPendentes());
+        assertEquals(3L, cursores.get("saudavel").getUltimoEvento());
+        assertEquals(3L, cursores.get("falho").getUltimoEvento());
+    }
+
+    @Test
+    @DisplayName("Quando o sink ainda nao tem cursor, deve comecar depois do ultimo evento ja publicado")
+    void publicarPendentes_sinkNovo() {
+        Mockito.when(repo.ultimoPublicado()).thenReturn(2L);
+        ReflectionTestUtils.setField(service, "sinks", List.of(saudavel));
+        assertEquals(1, service.publicarPendentes());
+        assertEquals(List.of(3L), saudavel.recebidos);
+    }
+
+    @Test
+    @DisplayName("Quando um id menor ainda nao foi confirmado, o cursor deve esperar por ele em vez de pular a lacuna")
+    void publicarPendentes_lacunaRecente() {
+        eventos.remove(1);  // o evento 2 esta em uma transacao ainda aberta
+        ReflectionTestUtils.setField(service, "sinks", List.of(saudavel));
+        assertEquals(1, service.publicarPendentes());
+        assertEquals(List.of(1L), saudavel.recebidos);
+        Mockito.verify(repo).marcarPublicadosAte(1L);
+
+        eventos.add(1, evento(2, LocalDateTime.now()));  // a transacao confirmou depois da do evento 3
+        assertEquals(2, service.publicarPendentes());
+        assertEquals(List.of(1L, 2L, 3L), saudavel.recebidos);
+    }
+
+    @Test
+    @DisplayName("Quando a lacuna passa da janela, deve ser tratada como rollback e pulada")
+    void publicarPendentes_lacunaAntiga() {
+        eventos.remove(1);
+        eventos.set(1, evento(3, LocalDateTime.now().minusMinutes(2)));
+        ReflectionTestUtils.setField(service, "sinks", List.of(saudavel));
+        assertEquals(2, service.publicarPendentes());
+        assertEquals(List.of(1L, 3L), saudavel.recebidos);
+    }
+
+    @Test
+    @DisplayName("Quando consulta o feed, deve parar na primeira lacuna recente")
+    void consultarDesde_lacuna() {
+        eventos.remove(1);
+        assertEquals(List.of(1L), service.consultarDesde(0L).stream().map(PersonagemEvento::getId).toList());
+        assertTrue(service.consultarDesde(1L).isEmpty());
+    }
+
+    private static PersonagemEvento evento(long id, LocalDateTime dataHora) {
+        return new PersonagemEvento(id, TipoEvento.INSERCAO, id, id, "Personagem " + id, null, null, dataHora, false);
+    }
+
+    // falha uma unica vez ao receber o evento indicado (0 nunca falha)
+    private static class SinkFalho implements EventoSink {
+
+        private final String nome;
+
+        private final long falharNoEvento;
+
+        private boolean falhou;
+
+        private final List<Long> recebidos = new ArrayList<>();
+
+        SinkFalho(String nome, long falharNoEvento) {
+            this.nome = nome;
+            this.falharNoEvento = falharNoEvento;
+        }
+
+        @Override
+        public void publicar(PersonagemEvento evento) {
+            if (evento.getId() == falharNoEvento && !falhou) {
+                falhou = true;
+                throw new IllegalStateException("destino indisponivel");
+            }
+            recebidos.add(evento.getId());
+        }
+
+        @Override
+        public String nome() {
+            return nome;
+        }
+
+    }
+
+}
@@ -10,6 +10,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import tech.devinhouse.personagens.exception.RegistroExistenteException;
 import tech.devinhouse.personagens.exception.RegistroNaoEncontradoException;
 import tech.devinhouse.personagens.model.Personagem;
+import tech.devinhouse.personagens.model.TipoEvento;
 import tech.devinhouse.personagens.repository.PersonagemRepository;
 
 import java.time.LocalDate;
@@ -25,6 +26,9 @@ class PersonagemServiceTest {
     @Mock  // mockando a dependencia da classe que eu quero testar
     private PersonagemRepository repo;
 
+    @Mock
+    private PersonagemEventoService eventoService;
+
     @InjectMocks  // injentando os mocks como dependencia da classe que eu quero testar
     private PersonagemService service;  // classe que eu quero testar
 
@@ -84,6 +88,7 @@ class PersonagemServiceTest {
         assertNotNull(personagemInserido);
         assertNotNull(personagemInserido.getId());
         assertEquals(personagem.getNome(), personagemInserido.getNome());
+        Mockito.verify(eventoService).registrar(TipoEvento.INSERCAO, personagemComIdCarregado);
     }
 
     @Test
@@ -134,6 +139,15 @@ class PersonagemServiceTest {
         assertDoesNotThrow(() -> service.excluir(id));
     }
 
+    @Test
+    @DisplayName("Quando exclui um registro, deve registrar evento de exclusao")
+    void excluir_registraEvento() {
+        Personagem personagem = new Personagem(1L, 12345678901L, "super sapato", LocalDate.now().minusYears(20), "Serie do Sapato");
+        Mockito.when(repo.findById(Mockito.anyLong())).thenReturn(Optional.of(personagem));
+        service.excluir(1L);
+        Mockito.verify(eventoService).registrar(TipoEvento.EXCLUSAO, personagem);
+    }
+
     @Test
     @DisplayName("Quando nao existe o registro com o id informando, deve lancar exceção")
     void excluir_naoExistente() {
@@ -153,6 +167,30 @@ class PersonagemServiceTest {
         assertEquals(personagem.getNome(), nomeRetornado);
     }
     
+    @Test
+    @DisplayName("Quando existe personagem com o id informado, deve retornar sua idade em anos completos")
+    void consultarIdade() {
+        Personagem personagem = new Personagem(10L, 12345678901L, "super sapato", LocalDate.now().minusYears(20).plusDays(1), "Serie do Sapato");
+        Mockito.when(repo.findById(Mockito.anyLong())).thenReturn(Optional.of(personagem));
+        assertEquals(19, service.consultarIdade(10L));
+    }
+
+    @Test
+    @DisplayName("Quando consulta por faixa de idade, deve consultar a faixa de datas de nascimento correspondente")
+    void consultarPorIdade() {
+        LocalDate hoje = LocalDate.now();
+        service.consultarPorIdade(18, 30);
+        Mockito.verify(repo).consultarPorDataNascimentoEntre(hoje.minusYears(31), hoje.minusYears(18));
+    }
+
+    @Test
+    @DisplayName("Quando consulta somente com idade minima, deve consultar os nascidos ate a data correspondente")
+    void consultarPorIdade_somenteMinima() {
+        LocalDate hoje = LocalDate.now();
+        service.consultarPorIdade(18, null);
+        Mockito.verify(repo).consultarPorDataNascimentoAteh(hoje.minusYears(18));
+    }
+
     //TODO: COMPLEMENTAR COM OUTROS TESTES ...
 
 }
\ No newline at end of file
@@ -0,0 +1,107 @@
+package tech.devinhouse.personagens.validacao;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import tech.devinhouse.personagens.dto.PersonagemRequest;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValidadorPersonagemTest {
+
+    private final ValidadorPersonagem validador = new ValidadorPersonagem();
+
+    private final Validator beanValidator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    private final List<PersonagemRequest> casos = List.of(
+            new PersonagemRequest(11111111111L, "James Kirk", LocalDate.of(1925, Month.JANUARY, 1), "Star Trek"),
+            new PersonagemRequest(),
+            new PersonagemRequest(1L, "", LocalDate.now(), ""),
+            new PersonagemRequest(1L, "x".repeat(41), LocalDate.now().plusDays(1), "Monk"),
+            new PersonagemRequest(1L, "x".repeat(40), null, "x".repeat(31)),
+            new PersonagemRequest(1L, "x", LocalDate.of(1100, Month.JANUARY, 1), "x".repeat(30)),
+            new PersonagemRequest(null, " ", null, "     "),
+            new PersonagemRequest(Long.MIN_VALUE, "Seven of Nine", null, "Star Trek"),
+            new PersonagemRequest(100_000_000_000L, "Seven of Nine", null, "Star Trek")
+    );
+
+    @Test
+    @DisplayName("Quando valida um lote, deve apontar os mesmos campos invalidos que as anotacoes do request")
+    void validar_mesmasRegrasDoBeanValidation() {
+        ErrosValidacao erros = validador.validar(casos);
+        Map<Integer, Map<String, String>> porLinha = erros.porLinha();
+        for (int i = 0; i < casos.size(); i++) {
+            Set<String> esperados = beanValidator.validate(casos.get(i)).stream()
+                    .map(v -> v.getPropertyPath().toString())
+                    .collect(Collectors.toSet());
+            assertEquals(esperados, porLinha.getOrDefault(i, Map.of()).keySet(), "linha " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("Quando o lote eh valido, nao deve haver erros")
+    void validar_loteValido() {
+        assertTrue(validador.validar(List.of(casos.get(0), casos.get(5))).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Quando o lote tem registro nulo, deve apontar erro na linha correspondente")
+    void validar_registroNulo() {
+        List<PersonagemRequest> lote = new ArrayList<>();
+        lote.add(casos.get(0));
+        lote.add(null);
+        ErrosValidacao erros = validador.validar(lote);
+        assertEquals(1, erros.getQuantidade());
+        assertEquals(1, erros.getLinha(0));
+        assertEquals(Regra.REGISTRO_OBRIGATORIO, erros.getRegra(0));
+    }
+
+    @Test
+    @DisplayName("Quando o CPF esta fora dos 11 digitos, deve apontar CPF invalido")
+    void validar_cpfForaDaFaixa() {
+        ErrosValidacao erros = validador.validar(List.of(casos.get(7), casos.get(8)));
+        assertEquals(2, erros.getQuantidade());
+        assertEquals(Regra.CPF_INVALIDO, erros.getRegra(0));
+        assertEquals(Regra.CPF_INVALIDO, erros.getRegra(1));
+    }
+
+    // mvn test -Dtest=ValidadorPersonagemTest -Dbenchmark=true
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Benchmark: validador pre-compilado x @Valid por objeto")
+    void benchmark() {
+        List<PersonagemRequest> lote = IntStream.range(0, 5_000)
+                .mapToObj(i -> casos.get(i % casos.size()))
+                .toList();
+        for (int i = 0; i < 20; i++) {  // aquecimento
+            validador.validar(lote);
+            lote.forEach(beanValidator::validate);
+        }
+        int rodadas = 50;
+        long inicio = System.nanoTime();
+        for (int i = 0; i < rodadas; i++)
+            validador.validar(lote);
+        long precompilado = (System.nanoTime() - inicio) / rodadas;
+        inicio = System.nanoTime();
+        for (int i = 0; i < rodadas; i++) {
+            Map<Integer, Map<String, String>> erros = new HashMap<>();
+            for (int j = 0; j < lote.size(); j++) {
+                int linha = j;
+                beanValidator.validate(lote.get(j)).forEach(v ->
+                        erros.computeIfAbsent(linha, l -> new HashMap<>()).put(v.getPropertyPath().toString(), v.getMessage()));
+            }
+        }
+        long beanValidation = (System.nanoTime() - inicio) / rodadas;
+        System.out.printf("Lote de %d registros: pre-compilado %d us, @Valid por objeto %d us (%.1fx)%n",
+                lote.size(), precompilado / 1000, beanValidation / 1000, (double) beanValidation / precompilado);
+    }
+
+}